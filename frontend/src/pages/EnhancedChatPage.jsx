@@ -99,12 +99,15 @@ export const EnhancedChatPage = () => {
     }
   };
 
+  // A receipt is a watermark: the reader has seen everything up to and including messageId
   const handleReadReceipt = (readReceipt) => {
-    setMessages(prev => prev.map(msg =>
-      msg.id === readReceipt.messageId
+    const watermark = BigInt(readReceipt.messageId);
+    setMessages(prev => prev.map(msg => {
+      const id = msg.messageId ?? msg.id;
+      return id != null && !msg.isRead && msg.sender !== readReceipt.username && BigInt(id) <= watermark
         ? { ...msg, isRead: true, readBy: [...(msg.readBy || []), readReceipt.username] }
-        : msg
-    ));
+        : msg;
+    }));
   };
 
   const handlePresenceUpdate = (presenceUpdate) => {
@@ -79,6 +79,12 @@ export const messageAPI = {
     return response.data;
   },
 
+  // Rooms with unread count, member count and last message in one call
+  getInbox: async () => {
+    const response = await api.get('/chatrooms/inbox');
+    return response.data;
+  },
+
   discoverRooms: async (page = 0, size = 20) => {
     const response = await api.get(`/chatrooms/discover?page=${page}&size=${size}`);
     return response.data;
@@ -139,6 +145,14 @@ export const fileAPI = {
   }
 };
 
+export const presenceAPI = {
+  // { seq, users } - the online set as of delta number seq
+  getSnapshot: async () => {
+    const response = await api.get('/presence/snapshot');
+    return response.data;
+  },
+};
+
 export const notificationAPI = {
   getNotifications: async () => {
     const response = await api.get('/notifications');
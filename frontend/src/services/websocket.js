@@ -1,6 +1,6 @@
 import SockJS from 'sockjs-client';
 import { Client } from '@stomp/stompjs';
-import { messageAPI } from './api';
+import { messageAPI, presenceAPI } from './api';
 
 class WebSocketService {
 
@@ -13,6 +13,9 @@ class WebSocketService {
     this.reconnectInterval = 3000;
     this.heartbeatInterval = null;
     this.heartbeatIntervalMs = 30000; // send heartbeat every 30 seconds
+    this.onlineUsers = new Set();
+    this.presenceSeq = null;
+    this.pendingPresenceDeltas = null;
   }
 
   connect(
@@ -93,20 +96,35 @@ class WebSocketService {
         onUserTyping(JSON.parse(message.body));
       });
 
-      // Online users
+      // Online users: versioned deltas { seq, joined, left }, resynced from a snapshot on a gap
       this.client.subscribe('/topic/online.users', (message) => {
-        const onlineUsers = JSON.parse(message.body);
-        if (onOnlineUsersUpdate) {
-          onOnlineUsersUpdate(onlineUsers);
-        }
+        this.applyPresenceDelta(JSON.parse(message.body), onOnlineUsersUpdate);
       });
+      this.loadPresenceSnapshot(onOnlineUsersUpdate);
 
+      // Typing arrives as one frame per room listing everyone typing; turn it into per-user events
+      let typingInRoom = new Set();
       this.client.subscribe(`/topic/typing.${roomId}`, (message) => {
-        if (onTypingEvent) onTypingEvent(JSON.parse(message.body));
+        const { users = [] } = JSON.parse(message.body);
+        const nowTyping = new Set(users);
+        if (onTypingEvent) {
+          nowTyping.forEach(username => {
+            if (!typingInRoom.has(username)) onTypingEvent({ username, roomId, typing: true });
+          });
+          typingInRoom.forEach(username => {
+            if (!nowTyping.has(username)) onTypingEvent({ username, roomId, typing: false });
+          });
+        }
+        typingInRoom = nowTyping;
       });
 
+      // Receipts arrive batched per room: { roomId, receipts: [{ username, messageId }], timestamp }
       this.client.subscribe(`/topic/read-receipt.${roomId}`, (message) => {
-        if (onReadReceipt) onReadReceipt(JSON.parse(message.body));
+        if (!onReadReceipt) return;
+        const batch = JSON.parse(message.body);
+        (batch.receipts || []).forEach(receipt =>
+          onReadReceipt({ ...receipt, roomId: batch.roomId, timestamp: batch.timestamp })
+        );
       });
 
       this.client.subscribe('/topic/presence', (message) => {
@@ -180,6 +198,48 @@ class WebSocketService {
     }
   }
 
+  applyPresenceDelta(delta, onOnlineUsersUpdate) {
+    if (this.pendingPresenceDeltas) {
+      // snapshot still loading: keep the delta and replay it afterwards
+      this.pendingPresenceDeltas.push(delta);
+      return;
+    }
+    if (delta.seq <= this.presenceSeq) {
+      return;
+    }
+    if (delta.seq !== this.presenceSeq + 1) {
+      this.loadPresenceSnapshot(onOnlineUsersUpdate);
+      return;
+    }
+    (delta.joined || []).forEach(username => this.onlineUsers.add(username));
+    (delta.left || []).forEach(username => this.onlineUsers.delete(username));
+    this.presenceSeq = delta.seq;
+    if (onOnlineUsersUpdate) {
+      onOnlineUsersUpdate(Array.from(this.onlineUsers));
+    }
+  }
+
+  async loadPresenceSnapshot(onOnlineUsersUpdate) {
+    if (this.pendingPresenceDeltas) {
+      return;
+    }
+    this.pendingPresenceDeltas = [];
+    try {
+      const snapshot = await presenceAPI.getSnapshot();
+      this.onlineUsers = new Set(snapshot.users || []);
+      this.presenceSeq = snapshot.seq;
+      if (onOnlineUsersUpdate) {
+        onOnlineUsersUpdate(Array.from(this.onlineUsers));
+      }
+    } catch (error) {
+      console.warn('Failed to load presence snapshot:', error);
+    } finally {
+      const buffered = this.pendingPresenceDeltas || [];
+      this.pendingPresenceDeltas = null;
+      buffered.forEach(delta => this.applyPresenceDelta(delta, onOnlineUsersUpdate));
+    }
+  }
+
   getRecentMessages(roomId = 'global') {
     return messageAPI.getRecentMessages(roomId);
   }
@@ -0,0 +1,115 @@
+package com.nikhitha.whispr.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nikhitha.whispr.dto.CachedMessage;
+import com.nikhitha.whispr.dto.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary codec against the JSON currently on each transport: the Boot-configured ObjectMapper for
+ * Kafka and GenericJackson2JsonRedisSerializer (with its embedded class names, set up as in
+ * {@code RedisConfig}) for Redis.
+ * Encoded sizes are printed once per fork. Run with {@code ./mvnw -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatEventCodecBenchmark {
+    private ObjectMapper objectMapper;
+    private GenericJackson2JsonRedisSerializer redisSerializer;
+
+    private ChatMessage chatMessage;
+    private CachedMessage cachedMessage;
+
+    private byte[] chatJson;
+    private byte[] chatBinary;
+    private byte[] cachedJson;
+    private byte[] cachedBinary;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        redisSerializer = new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+
+        LocalDateTime now = LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_000_000);
+        chatMessage = new ChatMessage();
+        chatMessage.setType(ChatMessage.MessageType.CHAT);
+        chatMessage.setContent("Are we still on for the design review at three?");
+        chatMessage.setSender("alice");
+        chatMessage.setRoomId("team-platform");
+        chatMessage.setTimestamp(now);
+        chatMessage.setMessageId(7_391_842_157_625_344L);
+
+        cachedMessage = new CachedMessage(7_391_842_157_625_344L, chatMessage.getContent(), "CHAT",
+                "alice", 7_391_842_005_618_688L, "team-platform", now, true, false);
+
+        chatJson = objectMapper.writeValueAsBytes(chatMessage);
+        chatBinary = ChatEventCodec.encode(chatMessage);
+        cachedJson = redisSerializer.serialize(cachedMessage);
+        cachedBinary = ChatEventCodec.encode(cachedMessage);
+
+        System.out.printf("%nChatMessage   json=%d bytes binary=%d bytes%n", chatJson.length, chatBinary.length);
+        System.out.printf("CachedMessage json=%d bytes binary=%d bytes%n", cachedJson.length, cachedBinary.length);
+    }
+
+    @Benchmark
+    public byte[] chatMessageEncodeJson() throws Exception {
+        return objectMapper.writeValueAsBytes(chatMessage);
+    }
+
+    @Benchmark
+    public byte[] chatMessageEncodeBinary() {
+        return ChatEventCodec.encode(chatMessage);
+    }
+
+    @Benchmark
+    public ChatMessage chatMessageDecodeJson() throws Exception {
+        return objectMapper.readValue(chatJson, ChatMessage.class);
+    }
+
+    @Benchmark
+    public ChatMessage chatMessageDecodeBinary() throws Exception {
+        return ChatEventCodec.decodeChatMessage(chatBinary);
+    }
+
+    @Benchmark
+    public byte[] cachedMessageEncodeJson() {
+        return redisSerializer.serialize(cachedMessage);
+    }
+
+    @Benchmark
+    public byte[] cachedMessageEncodeBinary() {
+        return ChatEventCodec.encode(cachedMessage);
+    }
+
+    @Benchmark
+    public Object cachedMessageDecodeJson() {
+        return redisSerializer.deserialize(cachedJson);
+    }
+
+    @Benchmark
+    public CachedMessage cachedMessageDecodeBinary() throws Exception {
+        return ChatEventCodec.decodeCachedMessage(cachedBinary);
+    }
+}
@@ -0,0 +1,127 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nikhitha.whispr.dto.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one chat broadcast on a node as the room grows: every session in the room subscribes to
+ * both {@code /topic/room.<id>} and {@code /topic/messages/<id>}, the way the web client does.
+ * {@code convertPerDestination} is the old path (the template's Jackson converter runs for each
+ * destination); {@code sharedJson} is what {@link ClusterBroadcaster} does now (serialize once,
+ * wrap the same bytes per destination). Channels are synchronous, so each call includes the simple
+ * broker's per-session copy of the headers; the WebSocket write itself is not part of it.
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastFanOutBenchmark {
+    private static final String ROOM = "team-platform";
+    private static final List<String> DESTINATIONS = List.of("/topic/room." + ROOM, "/topic/messages/" + ROOM);
+
+    @Param({"1", "10", "100", "1000"})
+    private int roomSize;
+
+    private ObjectMapper objectMapper;
+    private SimpleBrokerMessageHandler broker;
+    private SimpMessagingTemplate messagingTemplate;
+    private ChatMessage chatMessage;
+    private long delivered;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutbound.subscribe(message -> delivered++);
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+
+        for (int session = 0; session < roomSize; session++) {
+            for (int i = 0; i < DESTINATIONS.size(); i++) {
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+                accessor.setSessionId("session-" + session);
+                accessor.setSubscriptionId("sub-" + i);
+                accessor.setDestination(DESTINATIONS.get(i));
+                broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+            }
+        }
+
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        messagingTemplate.setMessageConverter(converter);
+
+        chatMessage = new ChatMessage();
+        chatMessage.setType(ChatMessage.MessageType.CHAT);
+        chatMessage.setContent("Are we still on for the design review at three?");
+        chatMessage.setSender("alice");
+        chatMessage.setRoomId(ROOM);
+        chatMessage.setTimestamp(LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_000_000));
+        chatMessage.setMessageId(7_391_842_157_625_344L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public long convertPerDestination() {
+        for (String destination : DESTINATIONS) {
+            messagingTemplate.convertAndSend(destination, chatMessage);
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    public long sharedJson() throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(chatMessage);
+        for (String destination : DESTINATIONS) {
+            messagingTemplate.send(destination, jsonFrame(json));
+        }
+        return delivered;
+    }
+
+    // Same frame ClusterBroadcaster builds: per-destination headers around shared bytes
+    private static Message<byte[]> jsonFrame(byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}
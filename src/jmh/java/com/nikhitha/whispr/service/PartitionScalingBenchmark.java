@@ -0,0 +1,155 @@
+package com.nikhitha.whispr.service;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.TopicPartitionOffset;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to consume a fixed backlog of room-keyed chat records as the partition count grows, with
+ * one listener thread per partition the way {@code KafkaConfig} sets up the containers. Each record
+ * costs {@link #PROCESSING_MICROS} of simulated persistence, so a single partition is bound by its
+ * one thread and more partitions should cut the time roughly in proportion. Every record carries its
+ * room's sequence number and the run fails if any room is seen out of order.
+ * <p>
+ * Needs a broker ({@code spring.kafka.bootstrap-servers} system property, localhost:9092 by default);
+ * each trial creates its own topic and deletes it afterwards. Partitions are assigned to the
+ * container directly, so group rebalancing is not part of the measurement.
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PartitionScalingBenchmark {
+    private static final int ROOMS = 96;
+    private static final int RECORDS_PER_ROOM = 50;
+    private static final long PROCESSING_MICROS = 200;
+
+    @Param({"1", "3", "6", "12"})
+    private int partitions;
+
+    private String bootstrapServers;
+    private AdminClient admin;
+    private String topic;
+
+    @Setup
+    public void setUp() throws Exception {
+        bootstrapServers = System.getProperty("spring.kafka.bootstrap-servers", "localhost:9092");
+        admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        topic = "bench-messages-" + partitions + "-" + UUID.randomUUID();
+        admin.createTopics(List.of(new NewTopic(topic, partitions, (short) 1))).all().get(30, TimeUnit.SECONDS);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        // Interleaved the way live traffic arrives, keyed by room like KafkaProducerService
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(props)) {
+            for (int seq = 0; seq < RECORDS_PER_ROOM; seq++) {
+                for (int room = 0; room < ROOMS; room++) {
+                    producer.send(new ProducerRecord<>(topic, "room-" + room,
+                            (room + ":" + seq).getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+            producer.flush();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        admin.deleteTopics(List.of(topic)).all().get(30, TimeUnit.SECONDS);
+        admin.close();
+    }
+
+    @Benchmark
+    public int consumeBacklog() throws Exception {
+        CountDownLatch done = new CountDownLatch(ROOMS * RECORDS_PER_ROOM);
+        Map<Integer, Integer> lastSeq = new ConcurrentHashMap<>();
+        AtomicInteger outOfOrder = new AtomicInteger();
+
+        ConcurrentMessageListenerContainer<String, byte[]> container = container(record -> {
+            String[] value = new String(record.value(), StandardCharsets.UTF_8).split(":");
+            int room = Integer.parseInt(value[0]);
+            int seq = Integer.parseInt(value[1]);
+            Integer previous = lastSeq.put(room, seq);
+            if (previous != null ? seq != previous + 1 : seq != 0) {
+                outOfOrder.incrementAndGet();
+            }
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(PROCESSING_MICROS));
+            done.countDown();
+        });
+        container.start();
+        try {
+            if (!done.await(2, TimeUnit.MINUTES)) {
+                throw new IllegalStateException(done.getCount() + " records not consumed");
+            }
+        } finally {
+            container.stop();
+        }
+        if (outOfOrder.get() > 0) {
+            throw new IllegalStateException(outOfOrder.get() + " records arrived out of room order");
+        }
+        return lastSeq.size();
+    }
+
+    private ConcurrentMessageListenerContainer<String, byte[]> container(MessageListener<String, byte[]> listener) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "bench-" + UUID.randomUUID());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+
+        TopicPartitionOffset[] assignments = new TopicPartitionOffset[partitions];
+        for (int partition = 0; partition < partitions; partition++) {
+            assignments[partition] = new TopicPartitionOffset(topic, partition, TopicPartitionOffset.SeekPosition.BEGINNING);
+        }
+        ContainerProperties containerProperties = new ContainerProperties(assignments);
+        containerProperties.setMessageListener(listener);
+
+        ConcurrentMessageListenerContainer<String, byte[]> container =
+                new ConcurrentMessageListenerContainer<>(new DefaultKafkaConsumerFactory<>(props), containerProperties);
+        container.setConcurrency(partitions);
+        return container;
+    }
+}
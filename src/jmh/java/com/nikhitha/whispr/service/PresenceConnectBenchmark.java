@@ -0,0 +1,117 @@
+package com.nikhitha.whispr.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one connect against a real Redis ({@code spring.data.redis.host} and {@code .port}
+ * system properties, localhost:6379 by default). {@code sequentialCalls} replays the calls the
+ * connect used to make one after another (online set and its TTL, online set again with the seq
+ * bump, session set and its TTL, last seen, room join and member read); {@code connectScript} runs
+ * {@link PresenceService#CONNECT_SCRIPT}, which does the same work in one round-trip. Each call
+ * connects the next of {@link #USERS} users, who has just been taken offline.
+ * Keys live under {@code bench:} and are deleted afterwards.
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresenceConnectBenchmark {
+    // Below the large-room threshold, so the script returns the members just as the old calls did
+    private static final int USERS = 100;
+    private static final String PREFIX = "bench:presence:";
+    private static final String ONLINE_USERS_KEY = PREFIX + "online";
+    private static final String LEGACY_ONLINE_USERS_KEY = PREFIX + "online_users";
+    private static final String PRESENCE_SEQ_KEY = PREFIX + "seq";
+    private static final String ROOM_USERS_KEY = PREFIX + "room:general";
+    private static final String SESSION_TTL_SECONDS = String.valueOf(TimeUnit.DAYS.toSeconds(1));
+    private static final String LARGE_ROOM_THRESHOLD = "200";
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private int next;
+    private String username;
+
+    @Setup
+    public void setUp() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("spring.data.redis.host", "localhost"),
+                Integer.getInteger("spring.data.redis.port", 6379)));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.afterPropertiesSet();
+        tearDownKeys();
+    }
+
+    @TearDown
+    public void tearDown() {
+        tearDownKeys();
+        connectionFactory.destroy();
+    }
+
+    /**
+     * Takes the next user out of the online and room sets, so each measured connect is a real join.
+     * Runs per invocation, which JMH only times cleanly for calls this slow (network round-trips).
+     */
+    @Setup(Level.Invocation)
+    public void nextUser() {
+        username = "user-" + (next++ % USERS);
+        redis.opsForSet().remove(ONLINE_USERS_KEY, username);
+        redis.opsForSet().remove(ROOM_USERS_KEY, username);
+    }
+
+    @Benchmark
+    public Object sequentialCalls() {
+        String sessionKey = PREFIX + "sessions:" + username;
+
+        redis.opsForSet().add(LEGACY_ONLINE_USERS_KEY, username);
+        redis.expire(LEGACY_ONLINE_USERS_KEY, 1, TimeUnit.DAYS);
+        Long added = redis.opsForSet().add(ONLINE_USERS_KEY, username);
+        if (added != null && added > 0) {
+            redis.opsForValue().increment(PRESENCE_SEQ_KEY);
+        }
+        redis.opsForSet().add(sessionKey, "session-" + username);
+        redis.expire(sessionKey, 1, TimeUnit.DAYS);
+        redis.opsForValue().set(PREFIX + "last_seen:" + username, LocalDateTime.now().toString(), 30, TimeUnit.DAYS);
+        redis.opsForSet().add(ROOM_USERS_KEY, username);
+        return redis.opsForSet().members(ROOM_USERS_KEY);
+    }
+
+    @Benchmark
+    public Object connectScript() {
+        return redis.execute(PresenceService.CONNECT_SCRIPT,
+                List.of(ONLINE_USERS_KEY, PREFIX + "sessions:" + username, PRESENCE_SEQ_KEY, ROOM_USERS_KEY),
+                username, "session-" + username, SESSION_TTL_SECONDS, LARGE_ROOM_THRESHOLD);
+    }
+
+    private void tearDownKeys() {
+        List<String> keys = new ArrayList<>(List.of(ONLINE_USERS_KEY, LEGACY_ONLINE_USERS_KEY, PRESENCE_SEQ_KEY,
+                ROOM_USERS_KEY));
+        for (int user = 0; user < USERS; user++) {
+            keys.add(PREFIX + "sessions:user-" + user);
+            keys.add(PREFIX + "last_seen:user-" + user);
+        }
+        redis.delete(keys);
+    }
+}
@@ -4,10 +4,12 @@ package com.nikhitha.whispr;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 // import jakarta.annotation.PostConstruct;
 
 @SpringBootApplication
+@EnableScheduling
 public class WhisprApplication {
 
 	// @PostConstruct
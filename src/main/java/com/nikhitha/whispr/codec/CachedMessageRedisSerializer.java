@@ -0,0 +1,40 @@
+package com.nikhitha.whispr.codec;
+
+import com.nikhitha.whispr.dto.CachedMessage;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Value serializer that writes {@link CachedMessage} with {@link ChatEventCodec} when the Redis
+ * transport is binary and hands every other value to the JSON serializer. Reads pick the format
+ * from the first byte, so cached lists written before a switch stay readable until they expire.
+ */
+public class CachedMessageRedisSerializer implements RedisSerializer<Object> {
+    private final RedisSerializer<Object> json;
+    private final WireFormat format;
+
+    public CachedMessageRedisSerializer(RedisSerializer<Object> json, WireFormat format) {
+        this.json = json;
+        this.format = format;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (format == WireFormat.BINARY && value instanceof CachedMessage message) {
+            return ChatEventCodec.encode(message);
+        }
+        return json.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (!ChatEventCodec.isBinary(bytes)) {
+            return json.deserialize(bytes);
+        }
+        try {
+            return ChatEventCodec.decodeCachedMessage(bytes);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read binary cached message: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.nikhitha.whispr.codec;
+
+import com.nikhitha.whispr.dto.CachedMessage;
+import com.nikhitha.whispr.dto.ChatMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of {@link ChatMessage} (Kafka) and {@link CachedMessage} (Redis).
+ * <p>
+ * A value is {@code MAGIC kind version} followed by tagged fields: each field starts with a
+ * varint tag {@code fieldNumber << 3 | wireType}, where wire type 0 is a varint and 2 is a
+ * varint length plus bytes. Null fields are left out and readers skip field numbers they do not
+ * know, so fields can be added without bumping the version; the version only changes when an
+ * existing field changes meaning, and readers reject versions newer than their own.
+ * <p>
+ * Message types are written as the fixed codes in {@link #TYPE_CODES} (never ordinals, so
+ * constants can be reordered) and timestamps as UTC epoch millis. The first byte can never start
+ * a JSON document, so readers of a transport accept both formats while it is being switched.
+ */
+public final class ChatEventCodec {
+
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte KIND_CHAT_MESSAGE = 1;
+    static final byte KIND_CACHED_MESSAGE = 2;
+    static final byte VERSION = 1;
+
+    private static final int VARINT = 0;
+    private static final int BYTES = 2;
+
+    // Append only: a code, once shipped, keeps its name
+    private static final String[] TYPE_CODES = {
+            null, "CHAT", "JOIN", "LEAVE", "TYPING", "STOP_TYPING", "READ_RECEIPT"
+    };
+    private static final Map<String, Integer> TYPE_NAMES = new HashMap<>();
+
+    static {
+        for (int code = 1; code < TYPE_CODES.length; code++) {
+            TYPE_NAMES.put(TYPE_CODES[code], code);
+        }
+    }
+
+    // ChatMessage fields
+    private static final int CM_TYPE = 1;
+    private static final int CM_CONTENT = 2;
+    private static final int CM_SENDER = 3;
+    private static final int CM_ROOM_ID = 4;
+    private static final int CM_TIMESTAMP = 5;
+    private static final int CM_MESSAGE_ID = 6;
+
+    // CachedMessage fields
+    private static final int CACHED_ID = 1;
+    private static final int CACHED_TYPE = 2;
+    // Types without a code yet are written by name
+    private static final int CACHED_TYPE_NAME = 3;
+    private static final int CACHED_CONTENT = 4;
+    private static final int CACHED_SENDER = 5;
+    private static final int CACHED_SENDER_ID = 6;
+    private static final int CACHED_ROOM_ID = 7;
+    private static final int CACHED_CREATED_AT = 8;
+    private static final int CACHED_DELIVERED = 9;
+    private static final int CACHED_READ = 10;
+
+    private ChatEventCodec() {
+    }
+
+    /**
+     * Whether {@code bytes} is a value written by this codec rather than JSON.
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    public static byte[] encode(ChatMessage message) {
+        Writer out = new Writer(64 + length(message.getContent()), KIND_CHAT_MESSAGE);
+        if (message.getType() != null) {
+            out.varintField(CM_TYPE, typeCode(message.getType().name()));
+        }
+        out.stringField(CM_CONTENT, message.getContent());
+        out.stringField(CM_SENDER, message.getSender());
+        out.stringField(CM_ROOM_ID, message.getRoomId());
+        out.timestampField(CM_TIMESTAMP, message.getTimestamp());
+        out.longField(CM_MESSAGE_ID, message.getMessageId());
+        return out.toByteArray();
+    }
+
+    public static ChatMessage decodeChatMessage(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_CHAT_MESSAGE);
+        ChatMessage message = new ChatMessage();
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case CM_TYPE -> message.setType(ChatMessage.MessageType.valueOf(typeName(in.readVarint())));
+                case CM_CONTENT -> message.setContent(in.readString());
+                case CM_SENDER -> message.setSender(in.readString());
+                case CM_ROOM_ID -> message.setRoomId(in.readString());
+                case CM_TIMESTAMP -> message.setTimestamp(in.readTimestamp());
+                case CM_MESSAGE_ID -> message.setMessageId(in.readVarint());
+                default -> in.skip(tag);
+            }
+        }
+        return message;
+    }
+
+    public static byte[] encode(CachedMessage message) {
+        Writer out = new Writer(64 + length(message.getContent()), KIND_CACHED_MESSAGE);
+        out.longField(CACHED_ID, message.getId());
+        if (message.getType() != null) {
+            Integer code = TYPE_NAMES.get(message.getType());
+            if (code != null) {
+                out.varintField(CACHED_TYPE, code);
+            } else {
+                out.stringField(CACHED_TYPE_NAME, message.getType());
+            }
+        }
+        out.stringField(CACHED_CONTENT, message.getContent());
+        out.stringField(CACHED_SENDER, message.getSender());
+        out.longField(CACHED_SENDER_ID, message.getSenderId());
+        out.stringField(CACHED_ROOM_ID, message.getRoomId());
+        out.timestampField(CACHED_CREATED_AT, message.getCreatedAt());
+        out.booleanField(CACHED_DELIVERED, message.getIsDelivered());
+        out.booleanField(CACHED_READ, message.getIsRead());
+        return out.toByteArray();
+    }
+
+    public static CachedMessage decodeCachedMessage(byte[] bytes) throws IOException {
+        Reader in = new Reader(bytes, KIND_CACHED_MESSAGE);
+        CachedMessage message = new CachedMessage();
+        while (in.hasMore()) {
+            int tag = in.readTag();
+            switch (tag >>> 3) {
+                case CACHED_ID -> message.setId(in.readVarint());
+                case CACHED_TYPE -> message.setType(typeName(in.readVarint()));
+                case CACHED_TYPE_NAME -> message.setType(in.readString());
+                case CACHED_CONTENT -> message.setContent(in.readString());
+                case CACHED_SENDER -> message.setSender(in.readString());
+                case CACHED_SENDER_ID -> message.setSenderId(in.readVarint());
+                case CACHED_ROOM_ID -> message.setRoomId(in.readString());
+                case CACHED_CREATED_AT -> message.setCreatedAt(in.readTimestamp());
+                case CACHED_DELIVERED -> message.setIsDelivered(in.readVarint() != 0);
+                case CACHED_READ -> message.setIsRead(in.readVarint() != 0);
+                default -> in.skip(tag);
+            }
+        }
+        return message;
+    }
+
+    private static int typeCode(String name) {
+        Integer code = TYPE_NAMES.get(name);
+        if (code == null) {
+            throw new IllegalArgumentException("No binary code for message type " + name);
+        }
+        return code;
+    }
+
+    private static String typeName(long code) {
+        if (code <= 0 || code >= TYPE_CODES.length) {
+            throw new IllegalArgumentException("Unknown message type code " + code);
+        }
+        return TYPE_CODES[(int) code];
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity, byte kind) {
+            buf = new byte[capacity];
+            buf[0] = MAGIC;
+            buf[1] = kind;
+            buf[2] = VERSION;
+            pos = 3;
+        }
+
+        void varintField(int field, long value) {
+            writeVarint((long) field << 3 | VARINT);
+            writeVarint(value);
+        }
+
+        void longField(int field, Long value) {
+            if (value != null) {
+                varintField(field, value);
+            }
+        }
+
+        void booleanField(int field, Boolean value) {
+            if (value != null) {
+                varintField(field, value ? 1 : 0);
+            }
+        }
+
+        void timestampField(int field, LocalDateTime value) {
+            if (value != null) {
+                varintField(field, value.toInstant(ZoneOffset.UTC).toEpochMilli());
+            }
+        }
+
+        void stringField(int field, String value) {
+            if (value == null) {
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint((long) field << 3 | BYTES);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        // Unsigned LEB128: seven bits per byte, high bit set on all but the last
+        private void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, byte kind) throws IOException {
+            if (!isBinary(buf)) {
+                throw new IOException("Not a binary chat event");
+            }
+            if (buf[1] != kind) {
+                throw new IOException("Expected binary value of kind " + kind + " but got " + buf[1]);
+            }
+            if (buf[2] > VERSION) {
+                throw new IOException("Unsupported binary chat event version " + buf[2]);
+            }
+            this.buf = buf;
+            this.pos = 3;
+        }
+
+        boolean hasMore() {
+            return pos < buf.length;
+        }
+
+        int readTag() throws IOException {
+            return (int) readVarint();
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= buf.length) {
+                    throw new IOException("Truncated varint");
+                }
+                byte b = buf[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString() throws IOException {
+            int length = readLength();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        LocalDateTime readTimestamp() throws IOException {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(readVarint()), ZoneOffset.UTC);
+        }
+
+        void skip(int tag) throws IOException {
+            switch (tag & 0x7) {
+                case VARINT -> readVarint();
+                case BYTES -> {
+                    // Not pos += readLength(): that would add the length to pos from before the length was read
+                    int length = readLength();
+                    pos += length;
+                }
+                default -> throw new IOException("Unknown wire type " + (tag & 0x7));
+            }
+        }
+
+        private int readLength() throws IOException {
+            long length = readVarint();
+            if (length < 0 || length > buf.length - pos) {
+                throw new IOException("Field length " + length + " exceeds value");
+            }
+            return (int) length;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.nikhitha.whispr.codec;
+
+/**
+ * Encoding written to a transport ({@code app.codec.kafka}, {@code app.codec.redis}). Readers
+ * always accept both, so a transport can be switched while old values are still in flight.
+ */
+public enum WireFormat {
+    JSON, BINARY
+}
@@ -0,0 +1,35 @@
+package com.nikhitha.whispr.config;
+
+import com.nikhitha.whispr.id.IdGenerator;
+import com.nikhitha.whispr.id.SnowflakeIdGenerator;
+import com.nikhitha.whispr.id.SnowflakeIdentifierGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * A single instance may leave {@code app.id.node-id} unset and runs as node 0. With
+ * {@code app.cluster.fanout.enabled} several instances share the database, so startup fails
+ * unless each one is given its own node id.
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    // Must be unique per running instance
+    @Value("${app.id.node-id:}")
+    private Long nodeId;
+
+    @Value("${app.cluster.fanout.enabled:false}")
+    private boolean fanoutEnabled;
+
+    @Bean
+    public IdGenerator idGenerator() {
+        if (nodeId == null && fanoutEnabled) {
+            throw new IllegalStateException(
+                    "app.id.node-id (WHISPR_NODE_ID) must be set, unique per instance, when app.cluster.fanout.enabled is on");
+        }
+        IdGenerator generator = new SnowflakeIdGenerator(nodeId != null ? nodeId : 0);
+        SnowflakeIdentifierGenerator.install(generator);
+        return generator;
+    }
+}
@@ -2,11 +2,16 @@ package com.nikhitha.whispr.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
@@ -20,45 +25,112 @@ import java.util.Map;
 @Configuration
 public class KafkaConfig {
 
+    @Autowired
+    private Environment environment;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
     @Value("${app.kafka.topic.messages:whispr-messages}")
     private String messagesTopic;
 
+    @Value("${app.kafka.topic.partitions:12}")
+    private int messagesTopicPartitions;
+
+    // Listener threads per container; partitions beyond this count are shared between threads
+    @Value("${app.kafka.consumer.concurrency:3}")
+    private int consumerConcurrency;
+
+    @Value("${app.kafka.consumer.batch.size:500}")
+    private int batchSize;
+
+    @Value("${app.kafka.consumer.batch.max-wait-ms:50}")
+    private int batchMaxWaitMs;
+
+    /**
+     * Values are produced as bytes already encoded in the format chosen by {@code app.codec.kafka}.
+     */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, byte[]> producerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        // Records are keyed by room; idempotence keeps them in order within a partition across retries
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
         return new DefaultKafkaProducerFactory<>(props);
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
+    public KafkaTemplate<String, byte[]> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * Values are consumed as raw bytes: JSON records are read with a streaming parser and
+     * forwarded to subscribers as-is, binary records are decoded and re-encoded as JSON once.
+     */
     @Bean
-    public ConsumerFactory<String, String> consumerFactory() {
+    public ConsumerFactory<String, byte[]> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG, "whispr-group");
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         return new DefaultKafkaConsumerFactory<>(props);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(consumerConcurrency);
+        useVirtualThreads(factory, "kafka-listener-");
         return factory;
     }
 
+    /**
+     * Consumer factory for the batch listener. A poll returns up to {@code batchSize} records
+     * and the broker holds the fetch for at most {@code batchMaxWaitMs} while it fills up.
+     */
+    @Bean
+    public ConsumerFactory<String, byte[]> batchConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1024);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setConcurrency(consumerConcurrency);
+        factory.setBatchListener(true);
+        useVirtualThreads(factory, "kafka-batch-listener-");
+        return factory;
+    }
+
+    /**
+     * Each listener thread still owns its partitions and polls them in order; only the thread
+     * running the poll loop becomes virtual, so blocking persistence no longer holds a platform thread.
+     */
+    private void useVirtualThreads(ConcurrentKafkaListenerContainerFactory<String, byte[]> factory, String threadNamePrefix) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.getContainerProperties().setListenerTaskExecutor(VirtualThreads.executor(threadNamePrefix));
+        }
+    }
+
+    /**
+     * Each room maps to exactly one partition (records are keyed by roomId), and each partition
+     * is owned by one listener thread, so messages of a room are processed in order while
+     * different rooms are processed in parallel. The admin client only ever grows an existing
+     * topic, which re-maps rooms to new partitions once, so pick the count with headroom.
+     */
     @Bean
     public NewTopic messagesTopic() {
-        return new NewTopic(messagesTopic, 1, (short) 1);
+        return new NewTopic(messagesTopic, messagesTopicPartitions, (short) 1);
     }
 }
@@ -0,0 +1,95 @@
+package com.nikhitha.whispr.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * One-off move from the per-message message_read_by table to RoomMember.lastReadMessageId.
+ * Each member's watermark becomes the highest message they had read in the room; members with
+ * no rows there fall back to the newest message older than their last_read_at. The old table is
+ * renamed afterwards rather than dropped, which also makes the migration a no-op on later starts.
+ * Runs as a lifecycle phase ahead of the web server, the STOMP broker and the Kafka listener
+ * containers, so nothing moves a watermark while it is being derived.
+ */
+@Component
+public class ReadWatermarkMigration implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReadWatermarkMigration.class);
+
+    // Lifecycle components that take traffic start at or near Integer.MAX_VALUE
+    static final int PHASE = 0;
+
+    private static final String LEGACY_TABLE = "message_read_by";
+    private static final String MIGRATED_TABLE = "message_read_by_migrated";
+
+    private static final String WATERMARK_FROM_READ_BY =
+            "UPDATE room_members rm SET last_read_message_id = src.max_id " +
+            "FROM (SELECT cr.id AS chat_room_id, rb.user_id, MAX(rb.message_id) AS max_id " +
+            "      FROM message_read_by rb " +
+            "      JOIN messages m ON m.id = rb.message_id " +
+            "      JOIN chat_rooms cr ON cr.room_id = m.room_id " +
+            "      GROUP BY cr.id, rb.user_id) src " +
+            "WHERE rm.room_id = src.chat_room_id AND rm.user_id = src.user_id " +
+            "AND (rm.last_read_message_id IS NULL OR rm.last_read_message_id < src.max_id)";
+
+    private static final String WATERMARK_FROM_LAST_READ_AT =
+            "UPDATE room_members rm SET last_read_message_id = (" +
+            "  SELECT MAX(m.id) FROM messages m JOIN chat_rooms cr ON cr.room_id = m.room_id " +
+            "  WHERE cr.id = rm.room_id AND m.created_at <= rm.last_read_at) " +
+            "WHERE rm.last_read_message_id IS NULL AND rm.last_read_at IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.migration.read-watermark.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean running;
+
+    @Override
+    @Transactional
+    public void start() {
+        running = true;
+        if (!enabled || !tableExists(LEGACY_TABLE)) {
+            return;
+        }
+
+        try {
+            int fromReadBy = jdbcTemplate.update(WATERMARK_FROM_READ_BY);
+            int fromLastReadAt = jdbcTemplate.update(WATERMARK_FROM_LAST_READ_AT);
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME TO " + MIGRATED_TABLE);
+            logger.info("Read watermark migration done: {} members from {}, {} from last_read_at",
+                    fromReadBy, LEGACY_TABLE, fromLastReadAt);
+        } catch (RuntimeException e) {
+            logger.error("Read watermark migration failed, will retry on next start: {}", e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.tables WHERE table_schema = current_schema() AND table_name = ?)",
+                Boolean.class, table);
+        return Boolean.TRUE.equals(exists);
+    }
+}
@@ -1,16 +1,26 @@
 package com.nikhitha.whispr.config;
 
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nikhitha.whispr.codec.CachedMessageRedisSerializer;
+import com.nikhitha.whispr.codec.WireFormat;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
+    /**
+     * With {@code app.codec.redis=BINARY} cached messages are stored in the compact binary codec;
+     * everything else stays JSON. Either format is read back regardless of the setting.
+     */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       @Value("${app.codec.redis:JSON}") WireFormat valueFormat) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -19,11 +29,23 @@ public class RedisConfig {
         template.setHashKeySerializer(new StringRedisSerializer());
         
         // Use JSON serializer for values - updated to avoid deprecated method
-        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
-        template.setValueSerializer(jsonSerializer);
+        // (with java.time support, cached messages carry a LocalDateTime)
+        GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+        template.setValueSerializer(new CachedMessageRedisSerializer(jsonSerializer, valueFormat));
         template.setHashValueSerializer(jsonSerializer);
         
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    /**
+     * Pub/sub subscriptions (cluster fan-out). Listeners are added by the services that own them.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+}
@@ -0,0 +1,84 @@
+package com.nikhitha.whispr.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Seeds chat_rooms.message_count / last_message_id and room_members.last_read_seq for rooms that
+ * had messages before the counters existed. Only rooms whose counter is still 0 while they have
+ * messages are touched, so once a room is backfilled it is skipped on later starts.
+ * Runs in the lifecycle phase after {@link ReadWatermarkMigration}, because member counters are
+ * derived from watermarks, and before the Kafka listener containers start: a live message must not
+ * bump a legacy room's counter first, or the room would no longer look like it needs backfilling.
+ */
+@Component
+public class RoomCounterBackfill implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(RoomCounterBackfill.class);
+
+    private static final String ROOMS_TO_BACKFILL =
+            "SELECT cr.room_id FROM chat_rooms cr WHERE cr.message_count = 0 " +
+            "AND EXISTS (SELECT 1 FROM messages m WHERE m.room_id = cr.room_id)";
+
+    private static final String BACKFILL_ROOM =
+            "UPDATE chat_rooms SET message_count = (SELECT COUNT(*) FROM messages m WHERE m.room_id = ?), " +
+            "last_message_id = (SELECT MAX(m.id) FROM messages m WHERE m.room_id = ?) " +
+            "WHERE room_id = ?";
+
+    // Read = at or below the member's watermark, or sent by the member themselves
+    private static final String BACKFILL_MEMBERS =
+            "UPDATE room_members rm SET last_read_seq = (" +
+            "  SELECT COUNT(*) FROM messages m WHERE m.room_id = cr.room_id " +
+            "  AND (m.id <= COALESCE(rm.last_read_message_id, 0) OR m.sender_id = rm.user_id)) " +
+            "FROM chat_rooms cr WHERE rm.room_id = cr.id AND cr.room_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.migration.room-counters.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean running;
+
+    @Override
+    @Transactional
+    public void start() {
+        running = true;
+        if (!enabled) {
+            return;
+        }
+
+        List<String> roomIds = jdbcTemplate.queryForList(ROOMS_TO_BACKFILL, String.class);
+        if (roomIds.isEmpty()) {
+            return;
+        }
+
+        for (String roomId : roomIds) {
+            jdbcTemplate.update(BACKFILL_ROOM, roomId, roomId, roomId);
+            jdbcTemplate.update(BACKFILL_MEMBERS, roomId);
+        }
+        logger.info("Backfilled unread counters for {} rooms", roomIds.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return ReadWatermarkMigration.PHASE + 1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.nikhitha.whispr.config;
+
+import com.nikhitha.whispr.stomp.StompLaneExecutor;
+import com.nikhitha.whispr.stomp.WebSocketSessionRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * The {@link StompLaneExecutor}s {@link WebSocketConfig} dispatches both client channels through.
+ * Only defined with {@code app.stomp.lanes.enabled}, so no lane workers are started otherwise.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.stomp.lanes.enabled", havingValue = "true")
+public class StompLaneConfig {
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+
+    @Value("${app.stomp.lanes.chat.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors() * 2}}")
+    private int chatThreads;
+
+    @Value("${app.stomp.lanes.chat.capacity:10000}")
+    private int chatCapacity;
+
+    @Value("${app.stomp.lanes.ephemeral.threads:2}")
+    private int ephemeralThreads;
+
+    @Value("${app.stomp.lanes.ephemeral.capacity:2000}")
+    private int ephemeralCapacity;
+
+    @Value("${app.stomp.outbound.max-session-frames:1000}")
+    private int maxSessionFrames;
+
+    @Value("${app.stomp.outbound.max-session-bytes:1048576}")
+    private long maxSessionBytes;
+
+    @Value("${app.stomp.outbound.max-session-lag-ms:10000}")
+    private long maxSessionLagMs;
+
+    @Bean
+    public StompLaneExecutor inboundLaneExecutor() {
+        return laneExecutor("ws-inbound");
+    }
+
+    @Bean
+    public StompLaneExecutor outboundLaneExecutor() {
+        StompLaneExecutor executor = laneExecutor("ws-outbound");
+        executor.setSlowConsumerPolicy(
+                new StompLaneExecutor.SlowConsumerPolicy(maxSessionFrames, maxSessionBytes, maxSessionLagMs),
+                sessionId -> webSocketSessionRegistry.close(sessionId, CloseStatus.SESSION_NOT_RELIABLE));
+        return executor;
+    }
+
+    // Catches sessions that stall while nothing new is sent to them
+    @Scheduled(fixedDelayString = "${app.stomp.outbound.sweep-ms:1000}")
+    public void sweepSlowConsumers() {
+        outboundLaneExecutor().sweep();
+    }
+
+    private StompLaneExecutor laneExecutor(String name) {
+        return new StompLaneExecutor(name,
+                workers(name + "-chat-", chatThreads), chatCapacity,
+                workers(name + "-ephemeral-", ephemeralThreads), ephemeralCapacity);
+    }
+
+    private Executor workers(String threadNamePrefix, int threads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return VirtualThreads.executor(threadNamePrefix);
+        }
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory(threadNamePrefix));
+    }
+}
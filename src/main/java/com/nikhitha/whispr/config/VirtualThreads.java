@@ -0,0 +1,20 @@
+package com.nikhitha.whispr.config;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Executors for {@code spring.threads.virtual.enabled} (Java 21+, see the {@code java21} Maven
+ * profile): one new virtual thread per task, so a handler blocked on Redis or Postgres only parks
+ * its own virtual thread instead of holding a pooled platform thread.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static SimpleAsyncTaskExecutor executor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
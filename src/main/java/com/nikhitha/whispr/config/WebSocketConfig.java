@@ -1,19 +1,69 @@
 package com.nikhitha.whispr.config;
 
+import com.nikhitha.whispr.security.StompAuthChannelInterceptor;
+import com.nikhitha.whispr.stomp.StompLaneExecutor;
+import com.nikhitha.whispr.stomp.WebSocketSessionRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * With virtual threads active, inbound and outbound channel dispatch runs on virtual threads.
+ * Those are not a fixed pool that happens to keep a session's frames apart, so receive and publish
+ * order are preserved explicitly: frames of one session are handed over one at a time, while
+ * different sessions still run in parallel.
+ * <p>
+ * With {@code app.stomp.lanes.enabled}, both client channels dispatch through a
+ * {@link StompLaneExecutor} from {@link StompLaneConfig} instead: chat and ephemeral frames get
+ * separate workers and bounded queues, and each lane keeps a session's frames in order by itself
+ * (on virtual threads too).
+ * Outbound, a session whose queued frames pass {@code app.stomp.outbound.max-session-*} is
+ * disconnected instead of buffering without bound.
+ * <p>
+ * Sessions authenticate once, with the JWT on their CONNECT frame ({@link StompAuthChannelInterceptor}).
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer{
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private StompAuthChannelInterceptor stompAuthChannelInterceptor;
+
+    @Value("${app.stomp.lanes.enabled:false}")
+    private boolean lanesEnabled;
+
+    // Only defined with app.stomp.lanes.enabled, see StompLaneConfig
+    @Autowired
+    @Qualifier("inboundLaneExecutor")
+    private ObjectProvider<StompLaneExecutor> inboundLaneExecutor;
+
+    @Autowired
+    @Qualifier("outboundLaneExecutor")
+    private ObjectProvider<StompLaneExecutor> outboundLaneExecutor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue", "/user");
+        // Not "/user": those are translated by the user destination handler, and a broker that also
+        // took the untranslated SUBSCRIBE would register it under the same subscription id first
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
+        if (virtualThreads() && !lanesEnabled) {
+            config.setPreservePublishOrder(true);
+        }
     }
 
     @Override
@@ -21,5 +71,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer{
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*") 
                 .withSockJS(); 
+        if (virtualThreads() && !lanesEnabled) {
+            registry.setPreserveReceiveOrder(true);
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(webSocketSessionRegistry());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthChannelInterceptor);
+        if (lanesEnabled) {
+            registration.executor(inboundLaneExecutor.getObject());
+        } else if (virtualThreads()) {
+            registration.executor(VirtualThreads.executor("ws-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (lanesEnabled) {
+            registration.executor(outboundLaneExecutor.getObject());
+        } else if (virtualThreads()) {
+            registration.executor(VirtualThreads.executor("ws-outbound-"));
+        }
+    }
+
+    @Bean
+    public WebSocketSessionRegistry webSocketSessionRegistry() {
+        return new WebSocketSessionRegistry();
+    }
+
+    private boolean virtualThreads() {
+        return Threading.VIRTUAL.isActive(environment);
     }
 }
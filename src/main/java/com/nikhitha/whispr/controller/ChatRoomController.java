@@ -1,6 +1,7 @@
 package com.nikhitha.whispr.controller;
 
 import com.nikhitha.whispr.dto.ChatRoomDTO;
+import com.nikhitha.whispr.dto.InboxEntry;
 import com.nikhitha.whispr.entity.ChatRoom;
 import com.nikhitha.whispr.entity.RoomMember;
 import com.nikhitha.whispr.entity.User;
@@ -52,6 +53,16 @@ public class ChatRoomController {
         return ResponseEntity.ok(chatRooms);
     }
 
+    @GetMapping("/inbox")
+    public ResponseEntity<?> getInbox(Authentication authentication) {
+        try {
+            List<InboxEntry> inbox = chatRoomService.getInbox(authentication.getName());
+            return ResponseEntity.ok(inbox);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/discover")
     public ResponseEntity<Page<ChatRoom>> discoverPublicRooms(
             @RequestParam(defaultValue = "0") int page,
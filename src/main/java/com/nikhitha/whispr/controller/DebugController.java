@@ -1,16 +1,24 @@
 package com.nikhitha.whispr.controller;
 
+import com.nikhitha.whispr.dto.MessageDTO;
 import com.nikhitha.whispr.service.MessageService;
 import com.nikhitha.whispr.service.PresenceService;
-import com.nikhitha.whispr.service.RoomPresenceService;
+import com.nikhitha.whispr.service.RoomMembershipCache;
+import com.nikhitha.whispr.service.UserIdentityCache;
+import com.nikhitha.whispr.service.VirtualThreadPinningMonitor;
+import com.nikhitha.whispr.stomp.StompLaneExecutor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,14 +38,29 @@ public class DebugController {
     @Autowired
     private PresenceService presenceService;
 
-    @Autowired
-    private RoomPresenceService roomPresenceService;
-
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired(required = false)
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private RoomMembershipCache roomMembershipCache;
+
+    @Autowired
+    private VirtualThreadPinningMonitor virtualThreadPinningMonitor;
+
+    // Only defined with app.stomp.lanes.enabled
+    @Autowired
+    @Qualifier("inboundLaneExecutor")
+    private ObjectProvider<StompLaneExecutor> inboundLaneExecutor;
+
+    @Autowired
+    @Qualifier("outboundLaneExecutor")
+    private ObjectProvider<StompLaneExecutor> outboundLaneExecutor;
 
     /**
      * Check persistence: return count of messages and sample of recent ones.
@@ -46,7 +69,7 @@ public class DebugController {
     public ResponseEntity<Map<String, Object>> getMessageCount() {
         try {
             // Get global room recent messages
-            List<com.nikhitha.whispr.entity.Message> messages = messageService.getRecentMessages("global");
+            List<MessageDTO> messages = messageService.getRecentMessages("global");
             
             Map<String, Object> response = new HashMap<>();
             response.put("status", "ok");
@@ -69,15 +92,13 @@ public class DebugController {
     @GetMapping("/presence/status")
     public ResponseEntity<Map<String, Object>> getPresenceStatus() {
         try {
-            List<String> onlineUsers = messageService.getOnlineUsers();
             Set<String> presenceUsers = presenceService.getOnlineUsers();
             
             Map<String, Object> response = new HashMap<>();
             response.put("status", "ok");
-            response.put("onlineUsersCount", onlineUsers.size());
-            response.put("onlineUsers", onlineUsers);
-            response.put("presenceUsersCount", presenceUsers.size());
-            response.put("presenceUsers", presenceUsers);
+            response.put("onlineUsersCount", presenceUsers.size());
+            response.put("onlineUsers", presenceUsers);
+            response.put("connectLatency", presenceService.getStats());
             response.put("timestamp", java.time.LocalDateTime.now());
             
             return ResponseEntity.ok(response);
@@ -105,7 +126,7 @@ public class DebugController {
         try {
             // Try to send a test message
             String testMsg = "{\"test\": true, \"timestamp\": \"" + java.time.LocalDateTime.now() + "\"}";
-            kafkaTemplate.send("whispr-messages", "test-key", testMsg);
+            kafkaTemplate.send("whispr-messages", "test-key", testMsg.getBytes(StandardCharsets.UTF_8));
             
             response.put("status", "ok");
             response.put("message", "Kafka is reachable");
@@ -163,7 +184,7 @@ public class DebugController {
             components.put("kafka", "disabled");
         } else {
             try {
-                kafkaTemplate.send("whispr-messages", "health-check", "{}");
+                kafkaTemplate.send("whispr-messages", "health-check", "{}".getBytes(StandardCharsets.UTF_8));
                 components.put("kafka", "ok");
             } catch (Exception e) {
                 components.put("kafka", "error: " + e.getMessage());
@@ -178,4 +199,56 @@ public class DebugController {
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Hit/miss statistics of the in-process user identity cache.
+     */
+    @GetMapping("/cache/users")
+    public ResponseEntity<Map<String, Object>> getUserCacheStats() {
+        return ResponseEntity.ok(userIdentityCache.getStats());
+    }
+
+    /**
+     * Hit/miss statistics of the room membership cache used by STOMP SUBSCRIBE checks.
+     */
+    @GetMapping("/cache/membership")
+    public ResponseEntity<Map<String, Object>> getMembershipCacheStats() {
+        return ResponseEntity.ok(roomMembershipCache.getStats());
+    }
+
+    /**
+     * Virtual threads pinned to their carrier longer than the configured threshold.
+     */
+    @GetMapping("/threads/pinned")
+    public ResponseEntity<Map<String, Object>> getPinnedThreadStats() {
+        return ResponseEntity.ok(virtualThreadPinningMonitor.getStats());
+    }
+
+    /**
+     * Queue depth, drops and conflation per STOMP priority lane, for both client channels.
+     */
+    @GetMapping("/stomp/lanes")
+    public ResponseEntity<Map<String, Object>> getStompLaneStats() {
+        StompLaneExecutor inbound = inboundLaneExecutor.getIfAvailable();
+        StompLaneExecutor outbound = outboundLaneExecutor.getIfAvailable();
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", inbound != null && outbound != null);
+        if (inbound != null) {
+            response.put("inbound", inbound.getStats());
+        }
+        if (outbound != null) {
+            response.put("outbound", outbound.getStats());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Sessions with outbound frames waiting, most lagging first. Empty when lanes are disabled.
+     */
+    @GetMapping("/stomp/sessions")
+    public ResponseEntity<List<Map<String, Object>>> getStompSessionLag(
+            @RequestParam(defaultValue = "50") int limit) {
+        StompLaneExecutor outbound = outboundLaneExecutor.getIfAvailable();
+        return ResponseEntity.ok(outbound != null ? outbound.getSessionLag(limit) : List.of());
+    }
 }
@@ -1,9 +1,11 @@
 package com.nikhitha.whispr.controller;
 
 
+import com.nikhitha.whispr.dto.MessageCursor;
 import com.nikhitha.whispr.dto.MessageDTO;
-import com.nikhitha.whispr.entity.Message;
+import com.nikhitha.whispr.dto.MessageHistoryPage;
 import com.nikhitha.whispr.service.MessageService;
+import com.nikhitha.whispr.service.PresenceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -11,8 +13,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -20,11 +23,12 @@ public class MessageController {
      @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private PresenceService presenceService;
+
     @GetMapping("/recent/{roomId}")
     public ResponseEntity<List<MessageDTO>> getRecentMessages(@PathVariable String roomId) {
-        List<Message> messages = messageService.getRecentMessages(roomId);
-        List<MessageDTO> dtos = messages.stream().map(MessageDTO::fromEntity).collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(messageService.getRecentMessages(roomId));
     }
 
     @GetMapping("/history/{roomId}")
@@ -34,17 +38,55 @@ public class MessageController {
             @RequestParam(defaultValue = "20") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<Message> messages = messageService.getMessageHistory(roomId, pageable);
-        Page<MessageDTO> dtos = messages.map(MessageDTO::fromEntity);
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(messageService.getMessageHistory(roomId, pageable));
+    }
+
+    /**
+     * Keyset-paginated history. Pass the previous page's {@code nextCursor} as {@code cursor},
+     * or a messageId as {@code before}; with neither, the newest messages are returned.
+     */
+    @GetMapping("/history/{roomId}/cursor")
+    public ResponseEntity<?> getMessageHistoryBefore(
+            @PathVariable String roomId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            int pageSize = Math.max(1, Math.min(limit, 100));
+            MessageCursor position = null;
+            if (cursor != null) {
+                position = MessageCursor.decode(cursor);
+            } else if (before != null) {
+                position = messageService.cursorAt(roomId, before);
+            }
+            MessageHistoryPage page = messageService.getMessageHistoryBefore(roomId, position, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/online-users")
     public ResponseEntity<List<String>> getOnlineUsers() {
-        List<String> onlineUsers = messageService.getOnlineUsers();
+        List<String> onlineUsers = new ArrayList<>(presenceService.getOnlineUsers());
         return ResponseEntity.ok(onlineUsers);
     }
 
+    @GetMapping("/unread/{roomId}")
+    public ResponseEntity<?> getUnreadCount(@PathVariable String roomId, @RequestParam String username) {
+        try {
+            return ResponseEntity.ok(Map.of("roomId", roomId, "unreadCount", messageService.getUnreadCount(roomId, username)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** Per-member read watermarks: a message has been read by a user if its id is at or below theirs. */
+    @GetMapping("/read-state/{roomId}")
+    public ResponseEntity<Map<String, String>> getReadState(@PathVariable String roomId) {
+        return ResponseEntity.ok(messageService.getReadWatermarks(roomId));
+    }
+
     @PostMapping("/mark-read/{roomId}")
     public ResponseEntity<Void> markMessagesAsRead(@PathVariable String roomId, 
                                                    @RequestParam String username) {
@@ -0,0 +1,43 @@
+package com.nikhitha.whispr.controller;
+
+import com.nikhitha.whispr.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+    @Autowired
+    private PresenceService presenceService;
+
+    /**
+     * Full online set plus the delta sequence it reflects. Clients load it on connect and again
+     * only when the deltas on /topic/online.users skip a sequence number.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<PresenceService.PresenceSnapshot> getSnapshot() {
+        return ResponseEntity.ok(presenceService.getSnapshot());
+    }
+
+    /**
+     * Pages through a room's online members, for rooms too large to list in presence frames.
+     * Pass back nextCursor until it is "0".
+     */
+    @GetMapping("/rooms/{roomId}/members")
+    public ResponseEntity<?> getRoomMembers(@PathVariable String roomId,
+                                            @RequestParam(defaultValue = "0") String cursor,
+                                            @RequestParam(defaultValue = "100") int count) {
+        if (!cursor.matches("\\d+")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        int pageSize = Math.max(1, Math.min(count, 500));
+        return ResponseEntity.ok(presenceService.getRoomMembersPage(roomId, cursor, pageSize));
+    }
+}
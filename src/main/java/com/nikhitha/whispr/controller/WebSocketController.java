@@ -1,8 +1,8 @@
 package com.nikhitha.whispr.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nikhitha.whispr.dto.ChatMessage;
 import com.nikhitha.whispr.dto.WebSocketUser;
+import com.nikhitha.whispr.id.IdGenerator;
 import com.nikhitha.whispr.service.*;
 import lombok.Data;
 import org.slf4j.Logger;
@@ -10,19 +10,22 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.time.LocalDateTime;
 
+/**
+ * STOMP handlers. The acting user is always the principal bound at CONNECT, never a name taken
+ * from the payload.
+ */
 @Controller
 public class WebSocketController {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketController.class);
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterBroadcaster clusterBroadcaster;
 
     @Autowired
     private MessageService messageService;
@@ -33,9 +36,6 @@ public class WebSocketController {
     @Autowired
     private PresenceService presenceService;
 
-    @Autowired
-    private RoomPresenceService roomPresenceService;
-
     @Autowired
     private KafkaProducerService kafkaProducerService;
 
@@ -43,22 +43,26 @@ public class WebSocketController {
     private HeartbeatService heartbeatService;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private IdGenerator idGenerator;
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload ChatMessage chatMessage, SimpMessageHeaderAccessor headerAccessor) {
+    public void sendMessage(@Payload ChatMessage chatMessage, Principal principal) {
         logger.debug("Received chat message: {}", chatMessage);
+        String rejectReason = MessageService.rejectReason(chatMessage);
+        if (rejectReason != null) {
+            logger.warn("Ignoring chat message from {}: {}", principal.getName(), rejectReason);
+            return;
+        }
         try {
             chatMessage.setTimestamp(LocalDateTime.now());
-            String username = (String) headerAccessor.getSessionAttributes().get("username");
-            
-            if (username != null && !username.equals(chatMessage.getSender())) {
-                logger.warn("Username mismatch: session={}, message={}", username, chatMessage.getSender());
-            }
+            chatMessage.setSender(principal.getName());
+
+            // Assign the final id up front so the broadcast and the stored row agree
+            // without waiting for the database
+            chatMessage.setMessageId(idGenerator.nextId());
 
             // Send to Kafka for processing
-            String messageJson = objectMapper.writeValueAsString(chatMessage);
-            kafkaProducerService.publishMessageEvent(messageJson);
+            kafkaProducerService.publishMessageEvent(chatMessage);
             
         } catch (Exception e) {
             logger.error("Failed to process chat message", e);
@@ -66,7 +70,7 @@ public class WebSocketController {
                 if (chatMessage.getType() == ChatMessage.MessageType.CHAT) {
                     messageService.saveMessage(chatMessage);
                 }
-                messagingTemplate.convertAndSend("/topic/public", chatMessage);
+                clusterBroadcaster.convertAndSend("/topic/public", chatMessage);
             } catch (Exception ex) {
                 logger.error("Fallback also failed", ex);
             }
@@ -74,110 +78,76 @@ public class WebSocketController {
     }
 
     @MessageMapping("/chat.addUser")
-    public void addUser(@Payload ChatMessage chatMessage, SimpMessageHeaderAccessor headerAccessor) {
+    public void addUser(@Payload ChatMessage chatMessage, Principal principal, SimpMessageHeaderAccessor headerAccessor) {
+        chatMessage.setSender(principal.getName());
         logger.debug("User joining: {}", chatMessage.getSender());
-        headerAccessor.getSessionAttributes().put("username", chatMessage.getSender());
         chatMessage.setTimestamp(LocalDateTime.now());
 
-        // Add to global online users
-        messageService.addOnlineUser(chatMessage.getSender());
-        if (presenceService != null) {
-            presenceService.userConnected(chatMessage.getSender(), headerAccessor.getSessionId());
-        }
-
-        // If the client provided a roomId, also track user in that room
+        // Mark online and track the user in the room (global if none given) in one presence update;
+        // a real transition is broadcast as a delta on /topic/online.users
         String roomId = chatMessage.getRoomId();
         if (roomId == null) {
             roomId = "global";
         }
-        if (roomPresenceService != null) {
-            roomPresenceService.userJoinedRoom(roomId, chatMessage.getSender());
-        }
-
-        // Broadcast updated global online users
-        messagingTemplate.convertAndSend("/topic/online.users", messageService.getOnlineUsers());
+        presenceService.userConnected(chatMessage.getSender(), headerAccessor.getSessionId(), roomId);
 
         // If the client provided a roomId, also send a join event into that room topic
         if (chatMessage.getRoomId() != null && !"global".equals(chatMessage.getRoomId())) {
-            messagingTemplate.convertAndSend("/topic/room." + chatMessage.getRoomId(), chatMessage);
+            clusterBroadcaster.convertAndSend("/topic/room." + chatMessage.getRoomId(), chatMessage);
         } else {
             // fallback: also send to public topic for compatibility
-            messagingTemplate.convertAndSend("/topic/public", chatMessage);
+            clusterBroadcaster.convertAndSend("/topic/public", chatMessage);
         }
     }
 
     @MessageMapping("/chat.leave")
-    @SendTo("/topic/public")
-    public ChatMessage leaveUser(@Payload ChatMessage chatMessage, SimpMessageHeaderAccessor headerAccessor) {
+    public void leaveUser(@Payload ChatMessage chatMessage, Principal principal, SimpMessageHeaderAccessor headerAccessor) {
+        chatMessage.setSender(principal.getName());
         logger.debug("User leaving: {}", chatMessage.getSender());
         chatMessage.setTimestamp(LocalDateTime.now());
 
-        // Remove from global online users
-        messageService.removeOnlineUser(chatMessage.getSender());
-        if (presenceService != null) {
-            presenceService.userDisconnected(chatMessage.getSender(), headerAccessor.getSessionId());
-        }
-
-        // Remove from room-specific presence
+        // Leave the room and, with the last session, go offline
         String roomId = chatMessage.getRoomId();
         if (roomId == null) {
             roomId = "global";
         }
-        if (roomPresenceService != null) {
-            roomPresenceService.userLeftRoom(roomId, chatMessage.getSender());
-        }
-
-        // Broadcast updated global online users
-        messagingTemplate.convertAndSend("/topic/online.users", messageService.getOnlineUsers());
+        presenceService.userDisconnected(chatMessage.getSender(), headerAccessor.getSessionId(), roomId);
 
-        return chatMessage;
+        clusterBroadcaster.convertAndSend("/topic/public", chatMessage);
     }
 
     @MessageMapping("/chat.typing")
-    public void typing(@Payload WebSocketUser user, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null) {
-            user.setUsername(username);
-            messagingTemplate.convertAndSend("/topic/typing", user);
-        }
+    public void typing(@Payload WebSocketUser user, Principal principal) {
+        user.setUsername(principal.getName());
+        clusterBroadcaster.convertAndSend("/topic/typing", user);
     }
 
     @MessageMapping("/chat.markRead")
-    public void markMessagesAsRead(@Payload String roomId, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null && roomId != null) {
-            messageService.markMessagesAsRead(roomId, username);
+    public void markMessagesAsRead(@Payload String roomId, Principal principal) {
+        if (roomId != null) {
+            messageService.markMessagesAsRead(roomId, principal.getName());
         }
     }
 
     @MessageMapping("/chat.typing.start")
-    public void startTyping(@Payload TypingRequest typingRequest, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null) {
-            typingService.startTyping(typingRequest.getRoomId(), username);
-        }
+    public void startTyping(@Payload TypingRequest typingRequest, Principal principal) {
+        typingService.startTyping(typingRequest.getRoomId(), principal.getName());
     }
 
     @MessageMapping("/chat.typing.stop")
-    public void stopTyping(@Payload TypingRequest typingRequest, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null) {
-            typingService.stopTyping(typingRequest.getRoomId(), username);
-        }
+    public void stopTyping(@Payload TypingRequest typingRequest, Principal principal) {
+        typingService.stopTyping(typingRequest.getRoomId(), principal.getName());
     }
 
     @MessageMapping("/chat.message.read")
-    public void markMessageAsRead(@Payload ReadReceiptRequest readReceiptRequest, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null) {
-            messageService.markMessageAsRead(readReceiptRequest.getMessageId(), username);
-        }
+    public void markMessageAsRead(@Payload ReadReceiptRequest readReceiptRequest, Principal principal) {
+        messageService.markMessageAsRead(readReceiptRequest.getMessageId(), principal.getName());
     }
 
     @MessageMapping("/heartbeat")
-    public void handleHeartbeat(@Payload HeartbeatRequest request, SimpMessageHeaderAccessor headerAccessor) {
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
-        if (username != null && heartbeatService != null) {
+    public void handleHeartbeat(@Payload HeartbeatRequest request, Principal principal) {
+        String username = principal.getName();
+        if (heartbeatService != null) {
             heartbeatService.recordUserActivity(username);
             if (request.getRoomId() != null) {
                 heartbeatService.recordRoomActivity(request.getRoomId(), username);
@@ -1,7 +1,6 @@
 package com.nikhitha.whispr.dto;
 
 import com.nikhitha.whispr.entity.Message;
-import com.nikhitha.whispr.entity.User;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -15,6 +14,7 @@ public class CachedMessage {
     private String content;
     private String type;
     private String sender;
+    private Long senderId;
     private String roomId;
     private LocalDateTime createdAt;
     private Boolean isDelivered;
@@ -26,6 +26,7 @@ public class CachedMessage {
             message.getContent(),
             message.getType().name(),
             message.getSender().getUsername(),
+            message.getSender().getId(),
             message.getRoomId(),
             message.getCreatedAt(),
             message.getIsDelivered(),
@@ -33,16 +34,34 @@ public class CachedMessage {
         );
     }
     
-    public Message toEntity(User sender) {
-        Message message = new Message();
-        message.setId(this.id);
-        message.setContent(this.content);
-        message.setType(Message.MessageType.valueOf(this.type));
-        message.setSender(sender);
-        message.setRoomId(this.roomId);
-        message.setCreatedAt(this.createdAt);
-        message.setIsDelivered(this.isDelivered);
-        message.setIsRead(this.isRead);
-        return message;
+    public static CachedMessage fromDTO(MessageDTO dto) {
+        return new CachedMessage(
+            dto.getMessageId(),
+            dto.getContent(),
+            dto.getType(),
+            dto.getSenderUsername(),
+            dto.getSenderUserId(),
+            dto.getRoomId(),
+            dto.getTimestamp(),
+            dto.getIsDelivered(),
+            dto.getIsRead()
+        );
+    }
+
+    /**
+     * Build the API shape straight from the cached copy, without touching JPA.
+     */
+    public MessageDTO toDTO() {
+        return new MessageDTO(
+            this.id,
+            this.type,
+            this.content,
+            this.sender,
+            this.senderId,
+            this.roomId != null ? this.roomId : "global",
+            this.createdAt,
+            this.isDelivered,
+            this.isRead
+        );
     }
 }
@@ -1,5 +1,7 @@
 package com.nikhitha.whispr.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 import java.time.LocalDateTime;
 
@@ -10,7 +12,9 @@ public class ChatMessage {
     private String sender;
     private String roomId;
     private LocalDateTime timestamp;
-    private Long messageId; // Add this field
+    // Serialized as a string: 64-bit ids do not fit in a JavaScript number
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Long messageId;
 
     public enum MessageType {
         CHAT, JOIN, LEAVE, TYPING, STOP_TYPING
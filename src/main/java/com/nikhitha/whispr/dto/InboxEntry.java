@@ -0,0 +1,37 @@
+package com.nikhitha.whispr.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.nikhitha.whispr.entity.ChatRoom;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of the inbox: a room the user belongs to with its unread count, member count and
+ * last message.
+ */
+@Data
+@NoArgsConstructor
+public class InboxEntry {
+    private String roomId;
+    private String name;
+    private ChatRoom.RoomType type;
+    private Boolean isPrivate;
+    private long unreadCount;
+    private long memberCount;
+    private MessageDTO lastMessage;
+
+    @JsonIgnore
+    private Long lastMessageId;
+
+    // Used by the JPQL constructor expression in ChatRoomRepository.findInboxEntries
+    public InboxEntry(String roomId, String name, ChatRoom.RoomType type, Boolean isPrivate,
+                      Long unreadCount, Long memberCount, Long lastMessageId) {
+        this.roomId = roomId;
+        this.name = name;
+        this.type = type;
+        this.isPrivate = isPrivate;
+        this.unreadCount = unreadCount != null ? Math.max(0, unreadCount) : 0;
+        this.memberCount = memberCount != null ? memberCount : 0;
+        this.lastMessageId = lastMessageId;
+    }
+}
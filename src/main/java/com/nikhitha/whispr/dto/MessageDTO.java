@@ -1,6 +1,9 @@
 package com.nikhitha.whispr.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.nikhitha.whispr.entity.Message;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,6 +19,7 @@ import java.time.LocalDateTime;
 public class MessageDTO {
     
     @JsonProperty("messageId")
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long messageId;
     
     @JsonProperty("type")
@@ -42,6 +46,15 @@ public class MessageDTO {
     @JsonProperty("isRead")
     private Boolean isRead;
     
+    /**
+     * Constructor expression target for the JPQL projections in MessageRepository
+     */
+    public MessageDTO(Long messageId, Message.MessageType type, String content, String senderUsername,
+                      Long senderUserId, String roomId, LocalDateTime timestamp, Boolean isDelivered, Boolean isRead) {
+        this(messageId, type != null ? type.name() : "CHAT", content, senderUsername, senderUserId,
+                roomId != null ? roomId : "global", timestamp, isDelivered, isRead);
+    }
+
     /**
      * Convert from ChatMessage DTO (used by WebSocket input)
      */
@@ -0,0 +1,20 @@
+package com.nikhitha.whispr.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of cursor-based message history, newest first. {@code nextCursor} is null on the
+ * last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageHistoryPage {
+    private List<MessageDTO> messages;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,33 @@
+package com.nikhitha.whispr.dto;
+
+import com.nikhitha.whispr.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The immutable part of a user that the message hot path needs: id and username.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserIdentity {
+    private final Long id;
+    private final String username;
+
+    public static UserIdentity fromEntity(User user) {
+        return new UserIdentity(user.getId(), user.getUsername());
+    }
+
+    /**
+     * A detached User carrying only id and username. Good enough to set as a foreign key
+     * reference (Hibernate writes the id without loading the row) and to read the username
+     * back without triggering a lazy load.
+     */
+    public User toUserReference() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+}
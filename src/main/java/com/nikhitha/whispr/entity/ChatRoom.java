@@ -1,5 +1,7 @@
 package com.nikhitha.whispr.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -40,6 +42,14 @@ public class ChatRoom {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // Running total of messages in the room; a member's unread count is messageCount - lastReadSeq
+    @Column(name = "message_count", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long messageCount = 0L;
+
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
     @OneToMany(mappedBy = "chatRoom", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<RoomMember> members = new ArrayList<>();
 
@@ -1,17 +1,23 @@
 package com.nikhitha.whispr.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.nikhitha.whispr.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.springframework.data.domain.Persistable;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+    @Index(name = "idx_messages_room_created_id", columnList = "room_id, created_at, id"),
+    @Index(name = "idx_messages_room_id", columnList = "room_id, id")
+})
 @Data
-public class Message {
+public class Message implements Persistable<Long> {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @Column(nullable = false, columnDefinition = "TEXT")
@@ -35,25 +41,31 @@ public class Message {
     @Column(name = "is_delivered", nullable = false)
     private Boolean isDelivered = false;
 
+    // Read state lives on RoomMember.lastReadMessageId; this column is no longer written
     @Column(name = "is_read", nullable = false)
     private Boolean isRead = false;
 
-    @ElementCollection
-    @CollectionTable(name = "message_read_by", joinColumns = @JoinColumn(name = "message_id"))
-    @Column(name = "user_id")
-    private Set<Long> readBy = new HashSet<>();
-
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // Ids are usually assigned by the producer, so Spring Data cannot use id == null to spot new rows
+    @Transient
+    private boolean newEntity = true;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
     }
 
-    public void markAsReadBy(Long userId) {
-        this.readBy.add(userId);
-        this.isRead = !this.readBy.isEmpty();
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        newEntity = false;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
     }
 
     public enum MessageType {
@@ -1,5 +1,8 @@
 package com.nikhitha.whispr.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.nikhitha.whispr.id.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -9,7 +12,8 @@ import java.time.LocalDateTime;
 @Data
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
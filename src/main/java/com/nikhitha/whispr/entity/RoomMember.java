@@ -1,5 +1,9 @@
 package com.nikhitha.whispr.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.nikhitha.whispr.id.SnowflakeId;
+import com.nikhitha.whispr.service.RoomMembershipCacheListener;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -8,10 +12,12 @@ import java.time.LocalDateTime;
 @Table(name = "room_members", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"room_id", "user_id"})
 })
+@EntityListeners(RoomMembershipCacheListener.class)
 @Data
 public class RoomMember {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -32,6 +38,15 @@ public class RoomMember {
     @Column(name = "last_read_at")
     private LocalDateTime lastReadAt;
 
+    // Read watermark: every message in the room with id <= this one has been read (null = nothing read)
+    @JsonSerialize(using = ToStringSerializer.class)
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId;
+
+    // ChatRoom.messageCount as of the member's last read
+    @Column(name = "last_read_seq", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long lastReadSeq = 0L;
+
     @PrePersist
     protected void onCreate() {
         joinedAt = LocalDateTime.now();
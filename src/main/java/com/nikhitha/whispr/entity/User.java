@@ -1,5 +1,6 @@
 package com.nikhitha.whispr.entity;
 
+import com.nikhitha.whispr.service.UserIdentityCacheListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -13,6 +14,7 @@ import lombok.Data;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(UserIdentityCacheListener.class)
 @Data
 
 public class User {
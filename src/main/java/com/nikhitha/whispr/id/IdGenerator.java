@@ -0,0 +1,8 @@
+package com.nikhitha.whispr.id;
+
+/**
+ * Source of unique 64-bit identifiers that can be assigned before a row is written.
+ */
+public interface IdGenerator {
+    long nextId();
+}
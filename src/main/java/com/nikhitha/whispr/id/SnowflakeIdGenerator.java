@@ -0,0 +1,59 @@
+package com.nikhitha.whispr.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style generator: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, 10 bits of
+ * node id and a 12 bit per-millisecond sequence. Ids are unique across nodes as long as every
+ * node uses a distinct node id, and they sort by creation time.
+ *
+ * The last issued (timestamp, sequence) pair lives in a single AtomicLong, so callers never
+ * block. When the sequence overflows, or the wall clock moves backwards, the generator keeps
+ * counting on top of the last timestamp instead of waiting for the clock to catch up.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private final long nodeId;
+    private final AtomicLong lastState = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long previous = lastState.get();
+            long next = now > (previous >>> SEQUENCE_BITS)
+                    ? now << SEQUENCE_BITS
+                    : previous + 1; // a sequence overflow carries into the timestamp
+            if (lastState.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Wall-clock time (epoch millis) encoded in an id produced by this scheme.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nikhitha.whispr.id;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+
+import java.util.EnumSet;
+
+/**
+ * Hibernate bridge for {@link SnowflakeId}. Hibernate instantiates generators itself, so the
+ * Spring-managed {@link IdGenerator} is handed over through {@link #install(IdGenerator)}.
+ */
+public class SnowflakeIdentifierGenerator implements BeforeExecutionGenerator {
+    private static volatile IdGenerator idGenerator;
+
+    public static void install(IdGenerator generator) {
+        idGenerator = generator;
+    }
+
+    // No fallback generator: one with a made-up node id could hand out ids another node also uses
+    private static IdGenerator idGenerator() {
+        IdGenerator generator = idGenerator;
+        if (generator == null) {
+            throw new IllegalStateException("No IdGenerator installed; entities were persisted before IdGeneratorConfig ran");
+        }
+        return generator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (currentValue != null) {
+            return currentValue;
+        }
+        return idGenerator().nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EnumSet.of(EventType.INSERT);
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
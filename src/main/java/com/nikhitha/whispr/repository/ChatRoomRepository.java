@@ -1,13 +1,15 @@
 package com.nikhitha.whispr.repository;
 
+import com.nikhitha.whispr.dto.InboxEntry;
 import com.nikhitha.whispr.entity.ChatRoom;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-// import java.util.List;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -23,4 +25,20 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long>{
     Page<ChatRoom> searchRooms(@Param("searchTerm") String searchTerm, Pageable pageable);
     
     boolean existsByRoomId(String roomId);
+
+    /** Bumps the room's message counter by count and moves lastMessageId forward. */
+    @Modifying
+    @Query("UPDATE ChatRoom c SET c.messageCount = c.messageCount + :count, " +
+           "c.lastMessageId = CASE WHEN c.lastMessageId IS NULL OR c.lastMessageId < :lastMessageId " +
+           "THEN :lastMessageId ELSE c.lastMessageId END " +
+           "WHERE c.roomId = :roomId")
+    int recordMessages(@Param("roomId") String roomId, @Param("count") long count,
+                       @Param("lastMessageId") Long lastMessageId);
+
+    // Everything the inbox needs except the last message body, read from the counters only
+    @Query("SELECT new com.nikhitha.whispr.dto.InboxEntry(c.roomId, c.name, c.type, c.isPrivate, " +
+           "c.messageCount - rm.lastReadSeq, " +
+           "(SELECT COUNT(m) FROM RoomMember m WHERE m.chatRoom = c), c.lastMessageId) " +
+           "FROM RoomMember rm JOIN rm.chatRoom c WHERE rm.user.id = :userId")
+    List<InboxEntry> findInboxEntries(@Param("userId") Long userId);
 }
@@ -1,5 +1,6 @@
 package com.nikhitha.whispr.repository;
 
+import com.nikhitha.whispr.dto.MessageDTO;
 import com.nikhitha.whispr.entity.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,34 +10,59 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long>{
-    Page<Message> findByRoomIdOrderByCreatedAtDesc(String roomId, Pageable pageable);
-    
-    List<Message> findTop50ByRoomIdOrderByCreatedAtDesc(String roomId);
-    
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.roomId = :roomId AND m.isRead = false AND m.sender.username != :username")
-    Long countUnreadMessages(@Param("roomId") String roomId, @Param("username") String username);
+    // Read-side projection: DTO fields and the sender's username in one statement, no entities
+    String DTO_SELECT = "SELECT new com.nikhitha.whispr.dto.MessageDTO(m.id, m.type, m.content, " +
+                        "s.username, s.id, m.roomId, m.createdAt, m.isDelivered, m.isRead) " +
+                        "FROM Message m JOIN m.sender s ";
+
+    @Query(value = DTO_SELECT + "WHERE m.roomId = :roomId ORDER BY m.createdAt DESC",
+           countQuery = "SELECT COUNT(m) FROM Message m WHERE m.roomId = :roomId")
+    Page<MessageDTO> findDTOsByRoomId(@Param("roomId") String roomId, Pageable pageable);
+
+    // Keyset pagination over (created_at, id), served by idx_messages_room_created_id
+    @Query(DTO_SELECT + "WHERE m.roomId = :roomId ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageDTO> findLatestDTOsInRoom(@Param("roomId") String roomId, Pageable pageable);
+
+    @Query(DTO_SELECT + "WHERE m.roomId = :roomId " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<MessageDTO> findDTOsBeforeInRoom(@Param("roomId") String roomId,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+
+    @Query(DTO_SELECT + "WHERE m.id IN :ids")
+    List<MessageDTO> findDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT m.createdAt FROM Message m WHERE m.id = :id AND m.roomId = :roomId")
+    Optional<LocalDateTime> findCreatedAtInRoom(@Param("id") Long id, @Param("roomId") String roomId);
+
+    @Query("SELECT m.id FROM Message m WHERE m.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") List<Long> ids);
     
+    @Query("SELECT MAX(m.id) FROM Message m WHERE m.roomId = :roomId")
+    Long findMaxIdInRoom(@Param("roomId") String roomId);
+
+    @Query("SELECT m.roomId FROM Message m WHERE m.id = :id")
+    Optional<String> findRoomIdById(@Param("id") Long id);
+
     @Modifying
     @Transactional
     @Query("UPDATE Message m SET m.isDelivered = true WHERE m.id IN :messageIds AND m.sender.username != :username")
     void markMessagesAsDelivered(@Param("messageIds") List<Long> messageIds, @Param("username") String username);
-    
-    @Modifying
-    @Transactional
-    @Query("UPDATE Message m SET m.isRead = true WHERE m.roomId = :roomId AND m.isRead = false AND m.sender.username != :username")
-    void markMessagesAsRead(@Param("roomId") String roomId, @Param("username") String username);
-    
-
-    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId AND m.isRead = false AND m.sender.id != :userId")
-    List<Message> findUnreadMessagesInRoom(@Param("roomId") String roomId, @Param("userId") Long userId);
 
     @Query("SELECT m FROM Message m WHERE m.roomId = :roomId AND m.isDelivered = false AND m.sender.id != :userId")
     List<Message> findUndeliveredMessagesInRoom(@Param("roomId") String roomId, @Param("userId") Long userId);
 
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.roomId = :roomId AND m.isRead = false AND m.sender.id != :userId")
-    Long countUnreadMessages(@Param("roomId") String roomId, @Param("userId") Long userId);
+    /** Unread = messages from other users above the member's read watermark; served by idx_messages_room_id. */
+    @Query("SELECT COUNT(m) FROM Message m WHERE m.roomId = :roomId AND m.id > :lastReadMessageId AND m.sender.id != :userId")
+    Long countUnreadMessages(@Param("roomId") String roomId, @Param("userId") Long userId,
+                             @Param("lastReadMessageId") Long lastReadMessageId);
 }
@@ -4,9 +4,11 @@ import com.nikhitha.whispr.entity.RoomMember;
 import com.nikhitha.whispr.entity.ChatRoom;
 import com.nikhitha.whispr.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +29,46 @@ public interface RoomMemberRepository extends JpaRepository<RoomMember, Long>{
     @Query("SELECT rm FROM RoomMember rm WHERE rm.chatRoom.roomId = :roomId AND rm.user.id = :userId")
     Optional<RoomMember> findByRoomIdAndUserId(@Param("roomId") String roomId, @Param("userId") Long userId);
     
+    @Query("SELECT rm.user.username, rm.lastReadMessageId FROM RoomMember rm " +
+           "WHERE rm.chatRoom.roomId = :roomId AND rm.lastReadMessageId IS NOT NULL")
+    List<Object[]> findReadWatermarks(@Param("roomId") String roomId);
+
+    @Query("SELECT c.messageCount - rm.lastReadSeq FROM RoomMember rm JOIN rm.chatRoom c " +
+           "WHERE c.roomId = :roomId AND rm.user.id = :userId")
+    Optional<Long> findUnreadCount(@Param("roomId") String roomId, @Param("userId") Long userId);
+
+    /** Moves the member's watermark to the newest message in the room. Returns 0 if they are not a member. */
+    @Modifying
+    @Query("UPDATE RoomMember rm SET rm.lastReadAt = :readAt, " +
+           "rm.lastReadMessageId = COALESCE((SELECT MAX(m.id) FROM Message m WHERE m.roomId = :roomId), rm.lastReadMessageId), " +
+           "rm.lastReadSeq = (SELECT c.messageCount FROM ChatRoom c WHERE c.roomId = :roomId) " +
+           "WHERE rm.user.id = :userId AND rm.chatRoom.id = (SELECT c.id FROM ChatRoom c WHERE c.roomId = :roomId)")
+    int markRoomAsRead(@Param("roomId") String roomId, @Param("userId") Long userId,
+                       @Param("readAt") LocalDateTime readAt);
+
+    /**
+     * Advances the watermark to messageId; never moves it backwards. Reading up to the room's
+     * newest message also clears the unread counter.
+     */
+    @Modifying
+    @Query("UPDATE RoomMember rm SET rm.lastReadAt = :readAt, rm.lastReadMessageId = :messageId, " +
+           "rm.lastReadSeq = CASE WHEN :messageId >= (SELECT c.lastMessageId FROM ChatRoom c WHERE c.roomId = :roomId) " +
+           "THEN (SELECT c.messageCount FROM ChatRoom c WHERE c.roomId = :roomId) ELSE rm.lastReadSeq END " +
+           "WHERE rm.user.id = :userId AND rm.chatRoom.id = (SELECT c.id FROM ChatRoom c WHERE c.roomId = :roomId) " +
+           "AND (rm.lastReadMessageId IS NULL OR rm.lastReadMessageId < :messageId)")
+    int advanceReadWatermark(@Param("roomId") String roomId, @Param("userId") Long userId,
+                             @Param("messageId") Long messageId, @Param("readAt") LocalDateTime readAt);
+
+    /** A sender has seen everything up to their own message: catch their counter and watermark up. */
+    @Modifying
+    @Query("UPDATE RoomMember rm SET " +
+           "rm.lastReadSeq = (SELECT c.messageCount FROM ChatRoom c WHERE c.roomId = :roomId), " +
+           "rm.lastReadMessageId = CASE WHEN rm.lastReadMessageId IS NULL OR rm.lastReadMessageId < :messageId " +
+           "THEN :messageId ELSE rm.lastReadMessageId END " +
+           "WHERE rm.user.id = :userId AND rm.chatRoom.id = (SELECT c.id FROM ChatRoom c WHERE c.roomId = :roomId)")
+    int markSentAsRead(@Param("roomId") String roomId, @Param("userId") Long userId,
+                       @Param("messageId") Long messageId);
+
     void deleteByChatRoomAndUser(ChatRoom chatRoom, User user);
     
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.nikhitha.whispr.security;
 
 import com.nikhitha.whispr.entity.User;
 import com.nikhitha.whispr.repository.UserRepository;
+import com.nikhitha.whispr.service.UserIdentityCache;
 
 // import com.nikhitha.whispr.security.UserPrincipal;
 
@@ -17,6 +18,9 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserIdentityCache userIdentityCache;
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -30,4 +34,14 @@ public class CustomUserDetailsService implements UserDetailsService {
         //         .build();
          return UserPrincipal.create(user);
     } 
+
+    /**
+     * Principal for a request that already carries a valid token. Only id and username are
+     * needed past that point, so this is served from the identity cache instead of the database.
+     */
+    public UserPrincipal loadAuthenticatedUser(String username) throws UsernameNotFoundException {
+        return userIdentityCache.find(username)
+                .map(identity -> new UserPrincipal(identity.getId(), identity.getUsername(), null, null))
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
 }
@@ -58,6 +58,7 @@ public class SecurityConfig {
             )
             .authorizeHttpRequests(auth -> auth
                     .requestMatchers("/api/auth/**").permitAll() 
+                    // The handshake cannot carry headers; STOMP CONNECT is authenticated by StompAuthChannelInterceptor
                     .requestMatchers("/ws/**").permitAll() 
                     .requestMatchers("/health").permitAll()
                     .anyRequest().authenticated() 
@@ -0,0 +1,144 @@
+package com.nikhitha.whispr.security;
+
+import com.nikhitha.whispr.dto.UserIdentity;
+import com.nikhitha.whispr.service.RoomMembershipCache;
+import com.nikhitha.whispr.service.UserIdentityCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * Authenticates STOMP sessions on the inbound channel. The JWT in the CONNECT frame's
+ * {@code Authorization} header is validated once and the resulting {@link StompPrincipal} is bound
+ * to the session; Spring attaches it to every later frame of that session. SENDs without a
+ * principal are rejected. SUBSCRIBEs are denied unless the destination is a known public topic, a
+ * {@code /user/queue/} destination (resolved to the subscriber's own session), or a room topic of a
+ * room the user belongs to, answered from {@link RoomMembershipCache}. Patterns are never accepted:
+ * the simple broker would match them against every destination. The handshake itself
+ * ({@code /ws/**}) stays open because browsers cannot add headers to it.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(StompAuthChannelInterceptor.class);
+
+    private static final Set<String> PUBLIC_TOPICS = Set.of(
+            "/topic/public", "/topic/typing", "/topic/presence", "/topic/online.users"
+    );
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+
+    // Room topics end in the room id; only /topic/room.<id> also has a suffixed form
+    private static final String[] ROOM_TOPIC_PREFIXES = {
+            "/topic/room.", "/topic/messages/", "/topic/typing.", "/topic/read-receipt."
+    };
+    private static final String ROOM_USERS_SUFFIX = ".users";
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private RoomMembershipCache roomMembershipCache;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            accessor.setUser(authenticate(accessor));
+        } else if (command == StompCommand.SEND) {
+            principal(accessor);
+        } else if (command == StompCommand.SUBSCRIBE) {
+            authorizeSubscribe(principal(accessor), accessor.getDestination());
+        }
+        return message;
+    }
+
+    private StompPrincipal authenticate(StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (!StringUtils.hasText(header) || !header.startsWith("Bearer ")) {
+            throw new BadCredentialsException("Missing bearer token on STOMP CONNECT");
+        }
+        String token = header.substring(7);
+        if (!jwtUtils.validateToken(token)) {
+            throw new BadCredentialsException("Invalid token on STOMP CONNECT");
+        }
+        String username = jwtUtils.getUsernameFromToken(token);
+        UserIdentity identity = userIdentityCache.find(username)
+                .orElseThrow(() -> new BadCredentialsException("Unknown user on STOMP CONNECT"));
+        logger.debug("STOMP session {} authenticated as {}", accessor.getSessionId(), username);
+        return new StompPrincipal(identity.getId(), identity.getUsername());
+    }
+
+    private static StompPrincipal principal(StompHeaderAccessor accessor) {
+        Principal user = accessor.getUser();
+        if (user instanceof StompPrincipal principal) {
+            return principal;
+        }
+        throw new AccessDeniedException("STOMP session is not authenticated");
+    }
+
+    private void authorizeSubscribe(StompPrincipal principal, String destination) {
+        if (!StringUtils.hasText(destination) || isPattern(destination)) {
+            throw new AccessDeniedException("Invalid subscription destination " + destination);
+        }
+        if (PUBLIC_TOPICS.contains(destination) || destination.startsWith(USER_QUEUE_PREFIX)) {
+            return;
+        }
+        String roomId = roomId(destination);
+        if (roomId == null) {
+            throw new AccessDeniedException("Subscriptions to " + destination + " are not allowed");
+        }
+        if ("global".equals(roomId)) {
+            return;
+        }
+        if (!roomMembershipCache.isMember(roomId, principal.getId())) {
+            throw new AccessDeniedException("Not a member of room " + roomId);
+        }
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0;
+    }
+
+    /**
+     * The room id of a room topic, or {@code null} if {@code destination} is not exactly one of the
+     * room topics the server publishes to.
+     */
+    static String roomId(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        for (String prefix : ROOM_TOPIC_PREFIXES) {
+            if (destination.startsWith(prefix)) {
+                String rest = destination.substring(prefix.length());
+                if ("/topic/room.".equals(prefix) && rest.endsWith(ROOM_USERS_SUFFIX)) {
+                    rest = rest.substring(0, rest.length() - ROOM_USERS_SUFFIX.length());
+                }
+                return isRoomId(rest) ? rest : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isRoomId(String value) {
+        return !value.isEmpty() && value.indexOf('.') < 0 && value.indexOf('/') < 0;
+    }
+}
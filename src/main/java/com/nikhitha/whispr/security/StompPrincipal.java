@@ -0,0 +1,31 @@
+package com.nikhitha.whispr.security;
+
+import java.security.Principal;
+
+/**
+ * The user a STOMP session authenticated as at CONNECT. Bound to the session once and carried
+ * on every later frame, so handlers never look identity up again.
+ */
+public final class StompPrincipal implements Principal {
+    private final Long id;
+    private final String username;
+
+    public StompPrincipal(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return "StompPrincipal(" + id + ", " + username + ")";
+    }
+}
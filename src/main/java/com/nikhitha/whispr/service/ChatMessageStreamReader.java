@@ -0,0 +1,98 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikhitha.whispr.dto.ChatMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Reads chat events straight from their JSON bytes with a streaming parser: only the top-level
+ * scalars needed to persist the message are picked out, anything else is skipped without being
+ * materialized. The original bytes stay the wire format for subscribers; {@link #withMessageId}
+ * splices the id in when the producer did not assign one.
+ */
+@Component
+public class ChatMessageStreamReader {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public ChatMessage read(byte[] json) throws IOException {
+        JsonFactory factory = objectMapper.getFactory();
+        ChatMessage message = new ChatMessage();
+        try (JsonParser parser = factory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Chat event is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "type" -> message.setType(ChatMessage.MessageType.valueOf(parser.getText()));
+                    case "content" -> message.setContent(parser.getText());
+                    case "sender" -> message.setSender(parser.getText());
+                    case "roomId" -> message.setRoomId(parser.getText());
+                    case "messageId" -> message.setMessageId(Long.parseLong(parser.getText()));
+                    case "timestamp" -> message.setTimestamp(readTimestamp(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (message.getTimestamp() == null) {
+            message.setTimestamp(LocalDateTime.now());
+        }
+        return message;
+    }
+
+    /**
+     * Appends {@code "messageId":"<id>"} as the last member, so it wins over an explicit null
+     * earlier in the object. Only the bytes before the closing brace are copied.
+     */
+    public byte[] withMessageId(byte[] json, long messageId) {
+        int end = json.length - 1;
+        while (end >= 0 && json[end] != '}') {
+            end--;
+        }
+        if (end < 0) {
+            throw new IllegalArgumentException("Chat event is not a JSON object");
+        }
+        int last = end - 1;
+        while (last >= 0 && Character.isWhitespace(json[last])) {
+            last--;
+        }
+        String member = (json[last] == '{' ? "" : ",") + "\"messageId\":\"" + messageId + "\"}";
+        byte[] tail = member.getBytes(StandardCharsets.UTF_8);
+        byte[] spliced = Arrays.copyOf(json, end + tail.length);
+        System.arraycopy(tail, 0, spliced, end, tail.length);
+        return spliced;
+    }
+
+    // ISO strings by default; numeric arrays if the producer writes dates as timestamps
+    private static LocalDateTime readTimestamp(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return LocalDateTime.parse(parser.getText());
+        }
+        if (value == JsonToken.START_ARRAY) {
+            int[] parts = new int[7];
+            int i = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (i < parts.length) {
+                    parts[i++] = parser.getIntValue();
+                }
+            }
+            return LocalDateTime.of(parts[0], parts[1], parts[2], parts[3], parts[4], parts[5], parts[6]);
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
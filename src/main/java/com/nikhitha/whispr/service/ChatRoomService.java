@@ -1,11 +1,14 @@
 package com.nikhitha.whispr.service;
 
 import com.nikhitha.whispr.dto.ChatRoomDTO;
+import com.nikhitha.whispr.dto.InboxEntry;
+import com.nikhitha.whispr.dto.MessageDTO;
 import com.nikhitha.whispr.entity.ChatRoom;
 import com.nikhitha.whispr.entity.RoomMember;
 import com.nikhitha.whispr.entity.User;
 import org.springframework.beans.factory.annotation.Value;
 import com.nikhitha.whispr.repository.ChatRoomRepository;
+import com.nikhitha.whispr.repository.MessageRepository;
 import com.nikhitha.whispr.repository.RoomMemberRepository;
 import com.nikhitha.whispr.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,7 +19,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import jakarta.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +37,9 @@ public class ChatRoomService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MessageRepository messageRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -74,6 +84,9 @@ public class ChatRoomService {
         roomMember.setChatRoom(chatRoom);
         roomMember.setUser(user);
         roomMember.setRole(role);
+        // New members start caught up, history from before they joined is not unread
+        roomMember.setLastReadMessageId(messageRepository.findMaxIdInRoom(chatRoom.getRoomId()));
+        roomMember.setLastReadSeq(chatRoom.getMessageCount() != null ? chatRoom.getMessageCount() : 0L);
 
         return roomMemberRepository.save(roomMember);
     }
@@ -116,6 +129,31 @@ public class ChatRoomService {
         return chatRoomRepository.findRoomsByUserId(user.getId(), pageable);
     }
 
+    /**
+     * Every room the user belongs to with unread count, member count and last message, most recently
+     * active first. Two queries: one over the room counters, one primary-key lookup for the last messages.
+     */
+    @Transactional(readOnly = true)
+    public List<InboxEntry> getInbox(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+
+        List<InboxEntry> entries = chatRoomRepository.findInboxEntries(user.getId());
+        List<Long> lastMessageIds = entries.stream()
+                .map(InboxEntry::getLastMessageId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        if (!lastMessageIds.isEmpty()) {
+            Map<Long, MessageDTO> lastMessages = messageRepository.findDTOsByIds(lastMessageIds).stream()
+                    .collect(Collectors.toMap(MessageDTO::getMessageId, Function.identity()));
+            entries.forEach(entry -> entry.setLastMessage(lastMessages.get(entry.getLastMessageId())));
+        }
+
+        entries.sort(Comparator.comparing(InboxEntry::getLastMessageId,
+                Comparator.nullsLast(Comparator.<Long>reverseOrder())));
+        return entries;
+    }
+
     @Transactional(readOnly = true)
     public Page<ChatRoom> discoverPublicRooms(Pageable pageable) {
         return chatRoomRepository.findByIsPrivateFalse(pageable);
@@ -143,11 +181,12 @@ public class ChatRoomService {
 
     @Transactional
     public void updateLastRead(String roomId, String username) {
-        RoomMember roomMember = roomMemberRepository.findByRoomIdAndUsername(roomId, username)
-                .orElseThrow(() -> new RuntimeException("User is not a member of this room"));
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found: " + username));
 
-        roomMember.setLastReadAt(LocalDateTime.now());
-        roomMemberRepository.save(roomMember);
+        if (roomMemberRepository.markRoomAsRead(roomId, user.getId(), LocalDateTime.now()) == 0) {
+            throw new RuntimeException("User is not a member of this room");
+        }
     }
 
     @PostConstruct
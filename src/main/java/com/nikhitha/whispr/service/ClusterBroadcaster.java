@@ -0,0 +1,215 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide STOMP fan-out. The simple broker only reaches sessions on this node, so every
+ * broadcast is delivered locally right away and, with {@code app.cluster.fanout.enabled}, also
+ * published on one Redis pub/sub channel that every node subscribes to; each node then delivers
+ * it to its own sessions and ignores what it published itself.
+ * <p>
+ * Services that keep per-node state can also exchange small events through {@link #publishEvent}
+ * so every node converges on the same state and only ever broadcasts locally.
+ * <p>
+ * Payloads are serialized to JSON bytes exactly once per broadcast. The same buffer backs the
+ * local frame for every destination (and so every subscribed session) and the cluster frame;
+ * the STOMP layer then only adds per-session headers.
+ * <p>
+ * Frames on the channel are {@code kind \n origin \n target \n destination \n json}: kind is
+ * {@code T} (topic), {@code U} (user destination, target is the username) or {@code E} (event,
+ * target is the event type).
+ */
+@Service
+public class ClusterBroadcaster implements MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterBroadcaster.class);
+
+    static final String CHANNEL = "whispr:broadcast";
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisListenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.cluster.fanout.enabled:false}")
+    private boolean fanoutEnabled;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, Consumer<String>> eventHandlers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void subscribe() {
+        if (fanoutEnabled) {
+            redisListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+            logger.info("Cluster fan-out enabled, node {}", nodeId);
+        }
+    }
+
+    public void convertAndSend(String destination, Object payload) {
+        convertAndSend(List.of(destination), payload);
+    }
+
+    /**
+     * Sends one payload to several destinations, serializing it only once.
+     */
+    public void convertAndSend(List<String> destinations, Object payload) {
+        byte[] json = encode(payload);
+        for (String destination : destinations) {
+            messagingTemplate.send(destination, jsonFrame(json));
+            publish('T', "", destination, json);
+        }
+    }
+
+    /**
+     * Sends a payload that is already JSON, e.g. the original bytes of a Kafka record.
+     */
+    public void sendEncoded(String destination, byte[] json) {
+        messagingTemplate.send(destination, jsonFrame(json));
+        publish('T', "", destination, json);
+    }
+
+    public void convertAndSendToUser(String username, String destination, Object payload) {
+        byte[] json = encode(payload);
+        messagingTemplate.send(userDestination(username, destination), jsonFrame(json));
+        publish('U', username, destination, json);
+    }
+
+    /**
+     * Sends an event to the handler registered for {@code type} on every other node.
+     */
+    public void publishEvent(String type, Object payload) {
+        if (fanoutEnabled) {
+            publish('E', type, "", encode(payload));
+        }
+    }
+
+    public void registerEventHandler(String type, Consumer<String> handler) {
+        eventHandlers.put(type, handler);
+    }
+
+    public boolean isFanoutEnabled() {
+        return fanoutEnabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private byte[] encode(Object payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize broadcast payload: " + e.getMessage(), e);
+        }
+    }
+
+    private void publish(char kind, String target, String destination, byte[] json) {
+        if (!fanoutEnabled) {
+            return;
+        }
+        try {
+            byte[] header = (kind + "\n" + nodeId + "\n" + target + "\n" + destination + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            byte[] frame = Arrays.copyOf(header, header.length + json.length);
+            System.arraycopy(json, 0, frame, header.length, json.length);
+            stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.publish(CHANNEL_BYTES, frame));
+        } catch (Exception e) {
+            // Local sessions already have it; other nodes miss this one frame
+            logger.warn("Failed to publish {} to the cluster: {}", destination, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        // Split off the four header lines without decoding the JSON body
+        String[] header = new String[4];
+        int start = 0;
+        for (int i = 0; i < header.length; i++) {
+            int end = indexOf(body, (byte) '\n', start);
+            if (end < 0) {
+                return;
+            }
+            header[i] = new String(body, start, end - start, StandardCharsets.UTF_8);
+            start = end + 1;
+        }
+        if (nodeId.equals(header[1])) {
+            return;
+        }
+        byte[] json = Arrays.copyOfRange(body, start, body.length);
+        try {
+            switch (header[0]) {
+                case "T" -> messagingTemplate.send(header[3], jsonFrame(json));
+                case "U" -> messagingTemplate.send(userDestination(header[2], header[3]), jsonFrame(json));
+                case "E" -> {
+                    Consumer<String> handler = eventHandlers.get(header[2]);
+                    if (handler != null) {
+                        handler.accept(new String(json, StandardCharsets.UTF_8));
+                    }
+                }
+                default -> logger.debug("Ignoring unknown cluster frame kind {}", header[0]);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to deliver cluster frame for {}: {}", header[3], e.getMessage());
+        }
+    }
+
+    // Same resolution as SimpMessagingTemplate.convertAndSendToUser
+    private String userDestination(String username, String destination) {
+        return messagingTemplate.getUserDestinationPrefix() + username.replace("/", "%2F") + destination;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Wraps already-encoded JSON without going through the message converters again. Headers are
+     * per destination (the template writes the destination into them), the payload is shared.
+     */
+    private static org.springframework.messaging.Message<byte[]> jsonFrame(byte[] json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+}
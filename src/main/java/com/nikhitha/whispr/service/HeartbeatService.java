@@ -3,47 +3,59 @@ package com.nikhitha.whispr.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.redis.connection.DefaultStringTuple;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection.StringTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * Manages heartbeat and session activity to prevent stale presence entries.
- * Clients can send periodic heartbeats to refresh their session TTL.
+ * Heartbeats are only recorded in memory; every {@code app.heartbeat.flush-interval-ms} the latest
+ * timestamp per user (and per user in a room) is written with one pipelined round of ZADDs into
+ * sorted sets scored by epoch millis, so liveness checks and expiry scans are score lookups.
+ * Room activity lives in one set with {@code roomId:username} members, which lets
+ * {@link PresenceReaper} find stale room memberships with a single range query.
+ * After each flush the users and room members it wrote are handed to the flush listener, which
+ * {@link PresenceService} uses to put users and room memberships the reaper expired back.
  */
 @Service
 public class HeartbeatService {
     private static final Logger logger = LoggerFactory.getLogger(HeartbeatService.class);
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
 
-    @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    static final String USER_ACTIVITY_KEY = "heartbeat:users";
+    static final String ROOM_ACTIVITY_KEY = "heartbeat:rooms";
 
-    private static final String USER_ACTIVITY_KEY = "user_activity:";
-    private static final String ROOM_ACTIVITY_KEY = "room_activity:";
-    private static final long ACTIVITY_TTL_HOURS = 24;
+    // Latest heartbeat not yet flushed; entries are only removed if they were not overwritten meanwhile
+    private final ConcurrentHashMap<Activity, Long> pending = new ConcurrentHashMap<>();
+
+    private volatile BiConsumer<Set<String>, Map<String, List<String>>> flushListener;
 
     /**
      * Record user activity (heartbeat).
-     * Updates the last activity timestamp and extends TTL for the user session.
      */
     public void recordUserActivity(String username) {
-        try {
-            String key = USER_ACTIVITY_KEY + username;
-            redisTemplate.opsForValue().set(
-                    key,
-                    LocalDateTime.now().toString(),
-                    ACTIVITY_TTL_HOURS,
-                    TimeUnit.HOURS
-            );
-            logger.debug("User activity recorded: {}", username);
-        } catch (Exception e) {
-            logger.warn("Failed to record user activity: {}", e.getMessage());
-        }
+        pending.put(new Activity(USER_ACTIVITY_KEY, username), System.currentTimeMillis());
     }
 
     /**
@@ -51,63 +63,101 @@ public class HeartbeatService {
      * Useful for tracking per-room last seen timestamps.
      */
     public void recordRoomActivity(String roomId, String username) {
+        pending.put(new Activity(ROOM_ACTIVITY_KEY, roomMember(roomId, username)), System.currentTimeMillis());
+    }
+
+    /**
+     * Called after every successful flush with the users whose heartbeats it wrote, and the users
+     * per room whose room heartbeats it wrote.
+     */
+    public void setFlushListener(BiConsumer<Set<String>, Map<String, List<String>>> listener) {
+        this.flushListener = listener;
+    }
+
+    /**
+     * Drops a user's heartbeat that has not been flushed yet, e.g. once their last session closed.
+     */
+    public void forgetUser(String username) {
+        pending.remove(new Activity(USER_ACTIVITY_KEY, username));
+    }
+
+    /**
+     * Drops a room heartbeat that has not been flushed yet, e.g. once the user left the room.
+     */
+    public void forgetRoomMember(String roomId, String username) {
+        pending.remove(new Activity(ROOM_ACTIVITY_KEY, roomMember(roomId, username)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.heartbeat.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<Activity, Long> flushed = new HashMap<>();
+        Map<String, Set<StringTuple>> byKey = new HashMap<>();
+        for (Map.Entry<Activity, Long> entry : pending.entrySet()) {
+            Activity activity = entry.getKey();
+            flushed.put(activity, entry.getValue());
+            byKey.computeIfAbsent(activity.key(), key -> new HashSet<>())
+                    .add(new DefaultStringTuple(activity.member(), entry.getValue()));
+        }
+
         try {
-            String key = ROOM_ACTIVITY_KEY + roomId + ":" + username;
-            redisTemplate.opsForValue().set(
-                    key,
-                    LocalDateTime.now().toString(),
-                    ACTIVITY_TTL_HOURS,
-                    TimeUnit.HOURS
-            );
-            logger.debug("Room activity recorded: {}@{}", username, roomId);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                byKey.forEach((key, tuples) -> redis.zAdd(key, tuples));
+                return null;
+            });
         } catch (Exception e) {
-            logger.warn("Failed to record room activity: {}", e.getMessage());
+            logger.warn("Failed to flush {} heartbeats: {}", flushed.size(), e.getMessage());
+            return;
         }
+
+        flushed.forEach(pending::remove);
+        logger.debug("Flushed {} heartbeats into {} sorted sets", flushed.size(), byKey.size());
+
+        BiConsumer<Set<String>, Map<String, List<String>>> listener = flushListener;
+        if (listener != null) {
+            Set<String> usernames = members(byKey.get(USER_ACTIVITY_KEY));
+            Map<String, List<String>> roomMembers = groupByRoom(members(byKey.get(ROOM_ACTIVITY_KEY)));
+            try {
+                listener.accept(usernames, roomMembers);
+            } catch (Exception e) {
+                logger.warn("Heartbeat flush listener failed for {} users in {} rooms: {}",
+                        usernames.size(), roomMembers.size(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
     }
 
     /**
      * Get last activity timestamp for a user.
      */
     public LocalDateTime getLastActivity(String username) {
-        try {
-            String key = USER_ACTIVITY_KEY + username;
-            Object value = redisTemplate.opsForValue().get(key);
-            if (value != null) {
-                return LocalDateTime.parse(value.toString());
-            }
-        } catch (Exception e) {
-            logger.debug("Failed to get last activity: {}", e.getMessage());
-        }
-        return null;
+        Long millis = lastActivityMillis(USER_ACTIVITY_KEY, username);
+        return millis != null ? toLocalDateTime(millis) : null;
     }
 
     /**
      * Get last activity timestamp for a user in a specific room.
      */
     public LocalDateTime getLastRoomActivity(String roomId, String username) {
-        try {
-            String key = ROOM_ACTIVITY_KEY + roomId + ":" + username;
-            Object value = redisTemplate.opsForValue().get(key);
-            if (value != null) {
-                return LocalDateTime.parse(value.toString());
-            }
-        } catch (Exception e) {
-            logger.debug("Failed to get room activity: {}", e.getMessage());
-        }
-        return null;
+        Long millis = lastActivityMillis(ROOM_ACTIVITY_KEY, roomMember(roomId, username));
+        return millis != null ? toLocalDateTime(millis) : null;
     }
 
     /**
      * Check if a user is still active (has had activity in the last N seconds).
-     * Defaults to checking within the last 5 minutes.
+     * A single ZSCORE, or no Redis call at all when the heartbeat has not been flushed yet.
      */
     public boolean isUserStillActive(String username, long seconds) {
-        LocalDateTime lastActivity = getLastActivity(username);
-        if (lastActivity == null) {
-            return false;
-        }
-        LocalDateTime threshold = LocalDateTime.now().minusSeconds(seconds);
-        return lastActivity.isAfter(threshold);
+        Long millis = lastActivityMillis(USER_ACTIVITY_KEY, username);
+        return millis != null && millis >= System.currentTimeMillis() - seconds * 1000;
     }
 
     /**
@@ -123,4 +173,55 @@ public class HeartbeatService {
     public void extendRoomSessionTTL(String roomId, String username) {
         recordRoomActivity(roomId, username);
     }
+
+    // Room ids are UUIDs or "global", so the first ':' always ends the room id
+    static String roomMember(String roomId, String username) {
+        return roomId + ":" + username;
+    }
+
+    /**
+     * Splits {@link #roomMember} entries back into usernames per room.
+     */
+    static Map<String, List<String>> groupByRoom(Collection<String> roomMembers) {
+        Map<String, List<String>> byRoom = new LinkedHashMap<>();
+        for (String member : roomMembers) {
+            int separator = member.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            byRoom.computeIfAbsent(member.substring(0, separator), room -> new ArrayList<>())
+                    .add(member.substring(separator + 1));
+        }
+        return byRoom;
+    }
+
+    private static Set<String> members(Set<StringTuple> tuples) {
+        if (tuples == null) {
+            return Set.of();
+        }
+        Set<String> members = new HashSet<>(tuples.size());
+        tuples.forEach(tuple -> members.add(tuple.getValueAsString()));
+        return members;
+    }
+
+    private Long lastActivityMillis(String key, String member) {
+        Long buffered = pending.get(new Activity(key, member));
+        if (buffered != null) {
+            return buffered;
+        }
+        try {
+            Double score = stringRedisTemplate.opsForZSet().score(key, member);
+            return score != null ? score.longValue() : null;
+        } catch (Exception e) {
+            logger.debug("Failed to get activity for {} in {}: {}", member, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record Activity(String key, String member) {
+    }
 }
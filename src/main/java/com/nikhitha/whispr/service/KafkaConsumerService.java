@@ -1,28 +1,36 @@
 package com.nikhitha.whispr.service;
 
+import com.nikhitha.whispr.codec.ChatEventCodec;
 import com.nikhitha.whispr.dto.ChatMessage;
 import com.nikhitha.whispr.entity.Message;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class KafkaConsumerService {
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerService.class);
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private ChatMessageStreamReader chatMessageReader;
 
     @Autowired
     private MessageService messageService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterBroadcaster clusterBroadcaster;
 
     @Value("${app.kafka.topic.messages}")
     private String messagesTopic;
@@ -30,11 +38,13 @@ public class KafkaConsumerService {
     @Value("${app.kafka.consumer.group}")
     private String consumerGroup;
 
-    @KafkaListener(topics = "${app.kafka.topic.messages}", groupId = "${app.kafka.consumer.group}")
-    public void listen(String message) {
-        logger.debug("Received kafka message on topic {}: {}", messagesTopic, message);
+    @KafkaListener(topics = "${app.kafka.topic.messages}", groupId = "${app.kafka.consumer.group}",
+            autoStartup = "#{!${app.kafka.consumer.batch.enabled:false}}")
+    public void listen(byte[] message) {
+        logger.debug("Received kafka message on topic {} ({} bytes)", messagesTopic, message.length);
         try {
-            ChatMessage chatMessage = objectMapper.readValue(message, ChatMessage.class);
+            ChatMessage chatMessage = read(message);
+            boolean assignedId = chatMessage.getMessageId() != null;
 
             // Save message and use the returned entity for additional processing
             Message savedMessage = messageService.saveMessage(chatMessage);
@@ -42,18 +52,115 @@ public class KafkaConsumerService {
             // Log the saved message ID for tracking
             logger.debug("Message saved with ID: {}", savedMessage.getId());
 
-            String destination = "/topic/public";
-            if (chatMessage.getRoomId() != null && !chatMessage.getRoomId().equals("global")) {
-                destination = "/topic/room." + chatMessage.getRoomId();
-            }
-
-            // Enhance the chatMessage with the saved message ID
             chatMessage.setMessageId(savedMessage.getId());
-            messagingTemplate.convertAndSend(destination, chatMessage);
-            logger.debug("Broadcasted message to: {}", destination);
+            broadcast(chatMessage, assignedId || ChatEventCodec.isBinary(message)
+                    ? message
+                    : chatMessageReader.withMessageId(message, savedMessage.getId()));
 
         } catch (Exception e) {
             logger.error("Failed to process Kafka message: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Batch mode: drains everything a poll returned, persists it in one transaction and only
+     * broadcasts once the batch has been committed. Records that cannot be parsed or stored are
+     * skipped. If the batch transaction still fails, its records are saved one by one so the rest
+     * of the batch survives a row the database refuses; if none of them can be saved the batch is
+     * handed back to the container to be redelivered. Subscribers get each record's original bytes,
+     * not a re-serialized copy.
+     */
+    @KafkaListener(topics = "${app.kafka.topic.messages}", groupId = "${app.kafka.consumer.group}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${app.kafka.consumer.batch.enabled:false}")
+    public void listenBatch(List<byte[]> records) {
+        logger.debug("Received batch of {} kafka messages on topic {}", records.size(), messagesTopic);
+
+        List<ChatMessage> chatMessages = new ArrayList<>(records.size());
+        Map<ChatMessage, byte[]> payloads = new IdentityHashMap<>(records.size());
+        Set<ChatMessage> unassigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (byte[] record : records) {
+            try {
+                ChatMessage chatMessage = read(record);
+                chatMessages.add(chatMessage);
+                payloads.put(chatMessage, record);
+                if (chatMessage.getMessageId() == null) {
+                    // id is only known after saving
+                    unassigned.add(chatMessage);
+                }
+            } catch (Exception e) {
+                logger.error("Skipping unparseable Kafka message: {}", e.getMessage());
+            }
+        }
+
+        List<ChatMessage> savedMessages;
+        try {
+            savedMessages = messageService.saveMessages(chatMessages);
+        } catch (Exception e) {
+            logger.error("Failed to persist batch of {} messages, saving them one by one: {}",
+                    chatMessages.size(), e.getMessage(), e);
+            savedMessages = saveIndividually(chatMessages, e);
+        }
+
+        for (ChatMessage chatMessage : savedMessages) {
+            try {
+                byte[] payload = payloads.get(chatMessage);
+                if (unassigned.contains(chatMessage) && !ChatEventCodec.isBinary(payload)) {
+                    payload = chatMessageReader.withMessageId(payload, chatMessage.getMessageId());
+                }
+                broadcast(chatMessage, payload);
+            } catch (Exception e) {
+                logger.error("Failed to broadcast message {}: {}", chatMessage.getMessageId(), e.getMessage());
+            }
+        }
+    }
+
+    // Each message in its own transaction; the failed batch was rolled back as a whole
+    private List<ChatMessage> saveIndividually(List<ChatMessage> chatMessages, Exception batchFailure) {
+        List<ChatMessage> saved = new ArrayList<>(chatMessages.size());
+        int failed = 0;
+        for (ChatMessage chatMessage : chatMessages) {
+            try {
+                saved.addAll(messageService.saveMessages(List.of(chatMessage)));
+            } catch (Exception e) {
+                failed++;
+                logger.error("Dropping message {} from {}: {}", chatMessage.getMessageId(), chatMessage.getSender(), e.getMessage());
+            }
+        }
+        if (saved.isEmpty() && failed > 0) {
+            // Nothing could be stored, so the database rather than the records is the likely cause
+            throw new IllegalStateException("Failed to persist any of " + chatMessages.size() + " messages", batchFailure);
+        }
+        return saved;
+    }
+
+    // Records written with app.codec.kafka=BINARY are recognised by their first byte
+    private ChatMessage read(byte[] record) throws IOException {
+        if (!ChatEventCodec.isBinary(record)) {
+            return chatMessageReader.read(record);
+        }
+        ChatMessage message = ChatEventCodec.decodeChatMessage(record);
+        if (message.getTimestamp() == null) {
+            message.setTimestamp(LocalDateTime.now());
+        }
+        return message;
+    }
+
+    /**
+     * Forwards a JSON record as it came off the topic; the messageId is the only field persistence
+     * can add, and it is spliced in by the callers when the producer did not assign one. Binary
+     * records are not what subscribers speak, so the decoded message is serialized once instead.
+     */
+    private void broadcast(ChatMessage chatMessage, byte[] payload) {
+        String destination = "/topic/public";
+        if (chatMessage.getRoomId() != null && !chatMessage.getRoomId().equals("global")) {
+            destination = "/topic/room." + chatMessage.getRoomId();
+        }
+        if (ChatEventCodec.isBinary(payload)) {
+            clusterBroadcaster.convertAndSend(destination, chatMessage);
+        } else {
+            clusterBroadcaster.sendEncoded(destination, payload);
+        }
+        logger.debug("Broadcasted message to: {}", destination);
+    }
+}
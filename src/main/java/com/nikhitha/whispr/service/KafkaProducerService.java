@@ -1,5 +1,10 @@
 package com.nikhitha.whispr.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nikhitha.whispr.codec.ChatEventCodec;
+import com.nikhitha.whispr.codec.WireFormat;
+import com.nikhitha.whispr.dto.ChatMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,13 +17,27 @@ public class KafkaProducerService {
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @Value("${app.kafka.topic.messages}")
     private String messagesTopic;
 
-    public void publishMessageEvent(String payload) {
-        logger.debug("Publishing message to topic {}: {}", messagesTopic, payload);
-        kafkaTemplate.send(messagesTopic, payload);
+    @Value("${app.codec.kafka:JSON}")
+    private WireFormat wireFormat;
+
+    /**
+     * Publish a chat event keyed by its room, so every message of a room lands on the same
+     * partition and is consumed in send order.
+     */
+    public void publishMessageEvent(ChatMessage chatMessage) throws JsonProcessingException {
+        String key = chatMessage.getRoomId() != null ? chatMessage.getRoomId() : "global";
+        byte[] payload = wireFormat == WireFormat.BINARY
+                ? ChatEventCodec.encode(chatMessage)
+                : objectMapper.writeValueAsBytes(chatMessage);
+        logger.debug("Publishing {} message to topic {} with key {} ({} bytes)", wireFormat, messagesTopic, key, payload.length);
+        kafkaTemplate.send(messagesTopic, key, payload);
     }
 }
@@ -2,26 +2,34 @@ package com.nikhitha.whispr.service;
 
 import com.nikhitha.whispr.dto.CachedMessage;
 import com.nikhitha.whispr.dto.ChatMessage;
+import com.nikhitha.whispr.dto.MessageCursor;
+import com.nikhitha.whispr.dto.MessageDTO;
+import com.nikhitha.whispr.dto.MessageHistoryPage;
+import com.nikhitha.whispr.dto.UserIdentity;
 import com.nikhitha.whispr.entity.Message;
-import com.nikhitha.whispr.entity.RoomMember;
-import com.nikhitha.whispr.entity.User;
+import com.nikhitha.whispr.repository.ChatRoomRepository;
 import com.nikhitha.whispr.repository.MessageRepository;
-import com.nikhitha.whispr.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.nikhitha.whispr.repository.RoomMemberRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,164 +40,281 @@ public class MessageService {
     private MessageRepository messageRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private ClusterBroadcaster clusterBroadcaster;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private RoomMemberRepository roomMemberRepository;
 
     @Autowired
-    private RoomMemberRepository roomMemberRepository;
+    private ChatRoomRepository chatRoomRepository;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private UserIdentityCache userIdentityCache;
 
-    private static final String RECENT_MESSAGES_KEY = "recent_messages:";
-    private static final String ONLINE_USERS_KEY = "online_users";
-    private static final long CACHE_EXPIRY_HOURS = 24;
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private ReadReceiptAggregator readReceiptAggregator;
 
     @Transactional
     public Message saveMessage(ChatMessage chatMessage) {
-        User sender = userRepository.findByUsername(chatMessage.getSender())
-                .orElseThrow(() -> new RuntimeException("User not found: " + chatMessage.getSender()));
+        UserIdentity sender = userIdentityCache.get(chatMessage.getSender());
 
         Message message = new Message();
+        message.setId(chatMessage.getMessageId());
         message.setContent(chatMessage.getContent());
         message.setType(Message.MessageType.valueOf(chatMessage.getType().name()));
-        message.setSender(sender);
+        message.setSender(sender.toUserReference());
         message.setRoomId(chatMessage.getRoomId() != null ? chatMessage.getRoomId() : "global");
         message.setCreatedAt(chatMessage.getTimestamp());
 
         Message savedMessage = messageRepository.save(message);
-        cacheMessage(savedMessage);
+        recordRoomActivity(List.of(savedMessage));
+        afterCommit(() -> cacheMessage(savedMessage));
         return savedMessage;
     }
 
-    @Transactional(readOnly = true)
-    public List<Message> getRecentMessages(String roomId) {
-        try {
-            String cacheKey = RECENT_MESSAGES_KEY + roomId;
-            List<CachedMessage> cachedMessages = getCachedMessages(cacheKey);
-            
-            if (cachedMessages != null && !cachedMessages.isEmpty()) {
-                return cachedMessages.stream()
-                    .map(cachedMsg -> {
-                        User sender = userRepository.findByUsername(cachedMsg.getSender())
-                            .orElseThrow(() -> new RuntimeException("User not found: " + cachedMsg.getSender()));
-                        return cachedMsg.toEntity(sender);
-                    })
-                    .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            logger.warn("Cache read failed, falling back to database", e);
-        }
-        
-        List<Message> messages = messageRepository.findTop50ByRoomIdOrderByCreatedAtDesc(roomId);
-        
-        try {
-            String cacheKey = RECENT_MESSAGES_KEY + roomId;
-            List<CachedMessage> cachedMessages = messages.stream()
-                .map(CachedMessage::fromEntity)
-                .collect(Collectors.toList());
-            redisTemplate.opsForValue().set(cacheKey, cachedMessages, CACHE_EXPIRY_HOURS, TimeUnit.HOURS);
-        } catch (Exception e) {
-            logger.warn("Failed to cache recent messages", e);
+    /**
+     * Persist a batch of chat messages in one transaction. Senders come from the identity cache
+     * (misses are resolved with a single query) and the rows go through saveAll so Hibernate
+     * can group them into JDBC batches. Messages from unknown senders and messages the table
+     * would refuse (see {@link #rejectReason}) are skipped, so one bad record cannot fail the batch.
+     * <p>
+     * Nothing outside the database sees the batch before it commits: the messageIds are copied onto
+     * the chat messages and the rows pushed to the recent-messages cache only then, so a batch that
+     * rolls back and is retried leaves neither stale ids nor phantom cache entries behind.
+     *
+     * @return the chat messages that were persisted, in input order; their messageId is set on commit
+     */
+    @Transactional
+    public List<ChatMessage> saveMessages(List<ChatMessage> chatMessages) {
+        if (chatMessages.isEmpty()) {
+            return List.of();
         }
-        
-        return messages;
-    }
 
-    @Transactional(readOnly = true)
-    public Page<Message> getMessageHistory(String roomId, Pageable pageable) {
-        return messageRepository.findByRoomIdOrderByCreatedAtDesc(roomId, pageable);
-    }
+        Set<String> usernames = chatMessages.stream()
+                .map(ChatMessage::getSender)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, UserIdentity> senders = userIdentityCache.getAll(usernames);
 
-    private void cacheMessage(Message message) {
-        try {
-            String cacheKey = RECENT_MESSAGES_KEY + (message.getRoomId() != null ? message.getRoomId() : "global");
-            List<CachedMessage> cachedMessages = getCachedMessages(cacheKey);
-            
-            if (cachedMessages == null) {
-                cachedMessages = new ArrayList<>();
+        // Kafka delivers at least once; ids are assigned by the producer, so redeliveries are easy to spot
+        List<Long> assignedIds = chatMessages.stream()
+                .map(ChatMessage::getMessageId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Set<Long> alreadySaved = assignedIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(messageRepository.findExistingIds(assignedIds));
+
+        List<ChatMessage> accepted = new ArrayList<>(chatMessages.size());
+        List<Message> messages = new ArrayList<>(chatMessages.size());
+        for (ChatMessage chatMessage : chatMessages) {
+            if (chatMessage.getMessageId() != null && alreadySaved.contains(chatMessage.getMessageId())) {
+                logger.debug("Skipping already persisted message {}", chatMessage.getMessageId());
+                continue;
+            }
+            String rejectReason = rejectReason(chatMessage);
+            if (rejectReason != null) {
+                logger.warn("Dropping message {} from {}: {}", chatMessage.getMessageId(), chatMessage.getSender(), rejectReason);
+                continue;
             }
-            
-            cachedMessages.add(0, CachedMessage.fromEntity(message));
-            
-            if (cachedMessages.size() > 50) {
-                cachedMessages = cachedMessages.subList(0, 50);
+            UserIdentity sender = senders.get(chatMessage.getSender());
+            if (sender == null) {
+                logger.warn("Dropping message from unknown user: {}", chatMessage.getSender());
+                continue;
             }
-            
-            redisTemplate.opsForValue().set(cacheKey, cachedMessages, CACHE_EXPIRY_HOURS, TimeUnit.HOURS);
-        } catch (Exception e) {
-            logger.warn("Failed to cache message, continuing without cache", e);
+            Message message = new Message();
+            message.setId(chatMessage.getMessageId());
+            message.setContent(chatMessage.getContent());
+            message.setType(Message.MessageType.valueOf(chatMessage.getType().name()));
+            message.setSender(sender.toUserReference());
+            message.setRoomId(chatMessage.getRoomId() != null ? chatMessage.getRoomId() : "global");
+            message.setCreatedAt(chatMessage.getTimestamp());
+            accepted.add(chatMessage);
+            messages.add(message);
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    private List<CachedMessage> getCachedMessages(String cacheKey) {
-        try {
-            Object cachedData = redisTemplate.opsForValue().get(cacheKey);
-            if (cachedData instanceof List) {
-                return (List<CachedMessage>) cachedData;
+        List<Message> savedMessages = messageRepository.saveAll(messages);
+        recordRoomActivity(savedMessages);
+        afterCommit(() -> {
+            Map<String, List<CachedMessage>> cachedByRoom = new LinkedHashMap<>();
+            for (int i = 0; i < savedMessages.size(); i++) {
+                Message saved = savedMessages.get(i);
+                accepted.get(i).setMessageId(saved.getId());
+                cachedByRoom.computeIfAbsent(saved.getRoomId(), room -> new ArrayList<>())
+                        .add(CachedMessage.fromEntity(saved));
             }
-        } catch (Exception e) {
-            logger.warn("Error reading from cache for key: {}", cacheKey, e);
+            cachedByRoom.forEach(recentMessageCache::push);
+        });
+        return accepted;
+    }
+
+    /**
+     * Why the messages table would refuse {@code chatMessage}, or {@code null} if it can be stored.
+     */
+    public static String rejectReason(ChatMessage chatMessage) {
+        if (chatMessage.getType() == null) {
+            return "missing type";
+        }
+        if (chatMessage.getContent() == null) {
+            return "missing content";
         }
         return null;
     }
 
-    public void addOnlineUser(String username) {
-        redisTemplate.opsForSet().add(ONLINE_USERS_KEY, username);
-        redisTemplate.expire(ONLINE_USERS_KEY, CACHE_EXPIRY_HOURS, TimeUnit.HOURS);
-    }
+    /**
+     * Keeps the unread counters current: one counter bump per room, plus one update per sender so
+     * their own messages never count as unread. Sending also catches the sender up on anything
+     * earlier in the same batch.
+     */
+    private void recordRoomActivity(List<Message> savedMessages) {
+        Map<String, Map<Long, Long>> lastIdBySenderByRoom = new LinkedHashMap<>();
+        Map<String, Integer> countByRoom = new LinkedHashMap<>();
+        for (Message message : savedMessages) {
+            countByRoom.merge(message.getRoomId(), 1, Integer::sum);
+            lastIdBySenderByRoom.computeIfAbsent(message.getRoomId(), room -> new LinkedHashMap<>())
+                    .merge(message.getSender().getId(), message.getId(), Math::max);
+        }
 
-    public void removeOnlineUser(String username) {
-        redisTemplate.opsForSet().remove(ONLINE_USERS_KEY, username);
+        countByRoom.forEach((roomId, count) -> {
+            Map<Long, Long> lastIdBySender = lastIdBySenderByRoom.get(roomId);
+            long lastMessageId = lastIdBySender.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+            chatRoomRepository.recordMessages(roomId, count, lastMessageId);
+            lastIdBySender.forEach((senderId, messageId) ->
+                    roomMemberRepository.markSentAsRead(roomId, senderId, messageId));
+        });
     }
 
-    public List<String> getOnlineUsers() {
-        return redisTemplate.opsForSet().members(ONLINE_USERS_KEY)
-                .stream()
-                .map(Object::toString)
-                .collect(Collectors.toList());
+    /**
+     * Recent messages of a room, newest first. A cache hit is answered entirely from Redis
+     * (no JPA session, no transaction); only a miss reads the database and seeds the cache.
+     */
+    public List<MessageDTO> getRecentMessages(String roomId) {
+        List<CachedMessage> cachedMessages = recentMessageCache.getRecent(roomId);
+        if (cachedMessages != null) {
+            List<MessageDTO> dtos = new ArrayList<>(cachedMessages.size());
+            for (CachedMessage cachedMsg : cachedMessages) {
+                if (cachedMsg.getSenderId() == null) {
+                    // entries cached before sender ids were stored
+                    userIdentityCache.find(cachedMsg.getSender())
+                            .ifPresent(identity -> cachedMsg.setSenderId(identity.getId()));
+                }
+                dtos.add(cachedMsg.toDTO());
+            }
+            return dtos;
+        }
+        
+        List<MessageDTO> messages = messageRepository.findLatestDTOsInRoom(
+                roomId, PageRequest.of(0, RecentMessageCache.MAX_MESSAGES));
+        recentMessageCache.fill(roomId, messages.stream()
+                .map(CachedMessage::fromDTO)
+                .collect(Collectors.toList()));
+        return messages;
     }
 
-    public boolean isUserOnline(String username) {
-        return redisTemplate.opsForSet().isMember(ONLINE_USERS_KEY, username);
+    @Transactional(readOnly = true)
+    public Page<MessageDTO> getMessageHistory(String roomId, Pageable pageable) {
+        return messageRepository.findDTOsByRoomId(roomId, pageable);
     }
 
-    @Transactional
-    public void markMessageAsRead(Long messageId, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+    /**
+     * Cursor-based history: up to {@code limit} messages strictly older than {@code cursor}
+     * (or the newest ones when the cursor is null). Reads one extra row to know whether another
+     * page exists; no COUNT query and no offset scan, so cost does not grow with depth.
+     */
+    @Transactional(readOnly = true)
+    public MessageHistoryPage getMessageHistoryBefore(String roomId, MessageCursor cursor, int limit) {
+        Pageable window = PageRequest.of(0, limit + 1);
+        List<MessageDTO> messages = cursor == null
+                ? messageRepository.findLatestDTOsInRoom(roomId, window)
+                : messageRepository.findDTOsBeforeInRoom(roomId, cursor.getCreatedAt(), cursor.getId(), window);
+
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages = messages.subList(0, limit);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            MessageDTO last = messages.get(messages.size() - 1);
+            nextCursor = new MessageCursor(last.getTimestamp(), last.getMessageId()).encode();
+        }
+        return new MessageHistoryPage(messages, nextCursor, hasMore);
+    }
 
-        Message message = messageRepository.findById(messageId)
+    /**
+     * Cursor positioned at an existing message of the room, for clients that page by messageId.
+     */
+    @Transactional(readOnly = true)
+    public MessageCursor cursorAt(String roomId, Long messageId) {
+        LocalDateTime createdAt = messageRepository.findCreatedAtInRoom(messageId, roomId)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
+        return new MessageCursor(createdAt, messageId);
+    }
 
-        if (!isUserInRoom(user.getId(), message.getRoomId())) {
-            throw new RuntimeException("User is not a member of this room");
+    private void cacheMessage(Message message) {
+        recentMessageCache.push(message.getRoomId(), List.of(CachedMessage.fromEntity(message)));
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed (never if it rolls back),
+     * or right away when there is no transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        message.markAsReadBy(user.getId());
-        messageRepository.save(message);
+    /**
+     * Queues a read receipt; the watermark write and the broadcast happen in the aggregator's next
+     * flush. Receipts that do not advance the reader's watermark, or come from non-members, are dropped there.
+     */
+    public void markMessageAsRead(Long messageId, String username) {
+        String roomId = messageRepository.findRoomIdById(messageId)
+                .orElseThrow(() -> new RuntimeException("Message not found"));
 
-        messagingTemplate.convertAndSend("/topic/read-receipt." + message.getRoomId(),
-                new ReadReceipt(messageId, username, System.currentTimeMillis()));
+        readReceiptAggregator.record(roomId, username, messageId);
     }
 
+    /** Marks everything in the room as read with a single UPDATE of the member's watermark. */
     @Transactional
     public void markMessagesAsRead(String roomId, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found: " + username));
+        if ("global".equals(roomId)) {
+            return;
+        }
 
-        List<Message> unreadMessages = messageRepository.findUnreadMessagesInRoom(roomId, user.getId());
+        UserIdentity user = userIdentityCache.get(username);
+        if (roomMemberRepository.markRoomAsRead(roomId, user.getId(), LocalDateTime.now()) == 0) {
+            throw new RuntimeException("User is not a member of this room");
+        }
+    }
 
-        for (Message message : unreadMessages) {
-            message.setIsDelivered(true);
-            message.markAsReadBy(user.getId());
+    public long getUnreadCount(String roomId, String username) {
+        UserIdentity user = userIdentityCache.get(username);
+        Optional<Long> unread = roomMemberRepository.findUnreadCount(roomId, user.getId());
+        if (unread.isPresent()) {
+            return Math.max(0, unread.get());
         }
+        // Not a member (e.g. the global room): no counter, fall back to counting from the start
+        return messageRepository.countUnreadMessages(roomId, user.getId(), 0L);
+    }
 
-        messageRepository.saveAll(unreadMessages);
-        updateLastReadTimestamp(roomId, username);
+    /** username -> last read messageId (as a string, like every id on the wire) for members who have read something. */
+    public Map<String, String> getReadWatermarks(String roomId) {
+        Map<String, String> watermarks = new LinkedHashMap<>();
+        for (Object[] row : roomMemberRepository.findReadWatermarks(roomId)) {
+            watermarks.put((String) row[0], String.valueOf(row[1]));
+        }
+        return watermarks;
     }
 
     @Transactional
@@ -206,45 +331,7 @@ public class MessageService {
         Message saved = saveMessage(chatMessage);
         String room = saved.getRoomId() != null ? saved.getRoomId() : "global";
         // broadcast to room-specific topic (used by Kafka consumer) and keep messages channel for compatibility
-        messagingTemplate.convertAndSend("/topic/room." + room, chatMessage);
-        messagingTemplate.convertAndSend("/topic/messages/" + room, chatMessage);
-    }
-
-    private boolean isUserInRoom(Long userId, String roomId) {
-        if("global".equals(roomId)) {
-            return true;
-        }
-        return roomMemberRepository.findByRoomIdAndUserId(roomId, userId).isPresent();
-    }
-
-    private void updateLastReadTimestamp(String roomId, String username) {
-        if("global".equals(roomId)) {
-            return; 
-        }
-        
-        RoomMember roomMember = roomMemberRepository.findByRoomIdAndUsername(roomId, username)
-                .orElseThrow(() -> new RuntimeException("User is not a member of this room"));
-
-        roomMember.setLastReadAt(LocalDateTime.now());
-        roomMemberRepository.save(roomMember);
-    }
-
-    public static class ReadReceipt {
-        private Long messageId;
-        private String username;
-        private long timestamp;
-
-        public ReadReceipt(Long messageId, String username, long timestamp) {
-            this.messageId = messageId;
-            this.username = username;
-            this.timestamp = timestamp;
-        }
-
-        public Long getMessageId() { return messageId; }
-        public void setMessageId(Long messageId) { this.messageId = messageId; }
-        public String getUsername() { return username; }
-        public void setUsername(String username) { this.username = username; }
-        public long getTimestamp() { return timestamp; }
-        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+        afterCommit(() -> clusterBroadcaster.convertAndSend(
+                List.of("/topic/room." + room, "/topic/messages/" + room), chatMessage));
     }
-}
\ No newline at end of file
+}
@@ -5,7 +5,6 @@ import com.nikhitha.whispr.entity.User;
 import com.nikhitha.whispr.repository.NotificationRepository;
 import com.nikhitha.whispr.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,7 +19,7 @@ public class NotificationService {
     private UserRepository userRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ClusterBroadcaster clusterBroadcaster;
 
     @Transactional
     public Notification createNotification(String username, String title, String message, 
@@ -38,7 +37,7 @@ public class NotificationService {
         Notification savedNotification = notificationRepository.save(notification);
 
         // Send real-time notification via WebSocket
-        messagingTemplate.convertAndSendToUser(
+        clusterBroadcaster.convertAndSendToUser(
             username,
             "/queue/notifications",
             savedNotification
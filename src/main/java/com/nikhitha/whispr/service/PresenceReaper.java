@@ -0,0 +1,70 @@
+package com.nikhitha.whispr.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expires users and room memberships whose timestamps in the heartbeat sorted sets are older
+ * than the presence timeout. Each tick claims at most
+ * {@code app.presence.reaper.batch-size} entries per set with one script call that ranges by
+ * score and removes what it returns, so several nodes can run the reaper and every stale entry
+ * is handled by exactly one of them.
+ */
+@Component
+public class PresenceReaper {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceReaper.class);
+
+    private static final DefaultRedisScript<List> CLAIM_EXPIRED_SCRIPT = new DefaultRedisScript<>(
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) " +
+            "if #expired > 0 then redis.call('ZREM', KEYS[1], unpack(expired)) end " +
+            "return expired",
+            List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private PresenceService presenceService;
+
+    @Value("${app.presence.timeout-ms:90000}")
+    private long presenceTimeoutMs;
+
+    @Value("${app.presence.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.presence.reaper.interval-ms:10000}")
+    public void reapPresence() {
+        long cutoff = System.currentTimeMillis() - presenceTimeoutMs;
+        try {
+            List<String> users = claimExpired(HeartbeatService.USER_ACTIVITY_KEY, cutoff);
+            if (!users.isEmpty()) {
+                presenceService.expireUsers(users);
+            }
+
+            Map<String, List<String>> roomMembers = HeartbeatService.groupByRoom(claimExpired(HeartbeatService.ROOM_ACTIVITY_KEY, cutoff));
+            roomMembers.forEach(presenceService::expireRoomUsers);
+
+            if (!users.isEmpty() || !roomMembers.isEmpty()) {
+                logger.info("Expired {} users and stale members in {} rooms", users.size(), roomMembers.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Presence reaper tick failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claimExpired(String key, long cutoff) {
+        List<String> expired = stringRedisTemplate.execute(CLAIM_EXPIRED_SCRIPT, List.of(key),
+                String.valueOf(cutoff), String.valueOf(batchSize));
+        return expired != null ? expired : List.of();
+    }
+}
@@ -1,82 +1,497 @@
 package com.nikhitha.whispr.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Global and per-room presence. Every state change (connect, disconnect, expiry) is one Lua
+ * script, so it costs a single round-trip and other nodes never observe a half-applied update.
+ * All keys live under {@code presence:} and hold plain strings.
+ * Room updates carry the member list only while the room is at most
+ * {@code app.presence.large-room.threshold} users, larger rooms get just the count and page
+ * through members with {@link #getRoomMembersPage}. Room updates are sent at most once per
+ * {@code app.presence.room-broadcast-interval-ms} per room.
+ * <p>
+ * Users whose heartbeats keep arriving are put back online, and back into the rooms their room
+ * heartbeats name, on every heartbeat flush, so a user the {@link PresenceReaper} expired during a
+ * pause (a throttled background tab, a long GC) reappears instead of staying offline, or missing
+ * from the room, for the rest of the session.
+ */
 @Service
 public class PresenceService {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private ClusterBroadcaster clusterBroadcaster;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private HeartbeatService heartbeatService;
+
+    private static final String ONLINE_USERS_KEY = "presence:online";
+    private static final String USER_SESSIONS_KEY = "presence:sessions:";
+    private static final String LAST_SEEN_KEY = "presence:last_seen:";
+    private static final String ROOM_USERS_KEY = "presence:room:";
+    private static final String ROOM_LAST_SEEN_KEY = "presence:room_last_seen:";
+    // Version of the online set; bumped once per real join/leave and stamped on every delta
+    private static final String PRESENCE_SEQ_KEY = "presence:seq";
+    private static final String ONLINE_USERS_TOPIC = "/topic/online.users";
+
+    private static final long SESSION_TTL_SECONDS = TimeUnit.DAYS.toSeconds(1);
+    private static final long LAST_SEEN_TTL_SECONDS = TimeUnit.DAYS.toSeconds(30);
+
+    // Shared tail of the room-changing scripts: exact count, members only for small rooms.
+    // Expects `changed` and the large-room threshold in `limit`; KEYS[room] is passed as `room`
+    private static final String ROOM_STATE_REPLY =
+            "local count = redis.call('SCARD', room) "
+                    + "local members = {} "
+                    + "if changed > 0 and count <= limit then members = redis.call('SMEMBERS', room) end ";
+
+    // KEYS: online, sessions, seq, room   ARGV: username, sessionId, session ttl, large-room threshold
+    // Returns {seq if the user came online else 0, 1 if the room set changed, room size, members of a small room}
+    static final DefaultRedisScript<List> CONNECT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SADD', KEYS[2], ARGV[2]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[3]) "
+                    + "local seq = 0 "
+                    + "if redis.call('SADD', KEYS[1], ARGV[1]) == 1 then seq = redis.call('INCR', KEYS[3]) end "
+                    + "local changed = redis.call('SADD', KEYS[4], ARGV[1]) "
+                    + "local room, limit = KEYS[4], tonumber(ARGV[4]) "
+                    + ROOM_STATE_REPLY
+                    + "return {seq, changed, count, members}",
+            List.class);
+
+    // KEYS: online, sessions, seq, last seen, room, room last seen
+    // ARGV: username, sessionId, now, last seen ttl, large-room threshold
+    // The user only goes offline with their last session; the room is left either way
+    private static final DefaultRedisScript<List> DISCONNECT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SREM', KEYS[2], ARGV[2]) "
+                    + "local seq = 0 "
+                    + "if redis.call('SCARD', KEYS[2]) == 0 and redis.call('SREM', KEYS[1], ARGV[1]) == 1 then "
+                    + "  seq = redis.call('INCR', KEYS[3]) "
+                    + "  redis.call('SET', KEYS[4], ARGV[3], 'EX', ARGV[4]) "
+                    + "end "
+                    + "local changed = redis.call('SREM', KEYS[5], ARGV[1]) "
+                    + "if changed == 1 then redis.call('SET', KEYS[6], ARGV[3]) end "
+                    + "local room, limit = KEYS[5], tonumber(ARGV[5]) "
+                    + ROOM_STATE_REPLY
+                    + "return {seq, changed, count, members}",
+            List.class);
+
+    // KEYS: online, seq, then (sessions, last seen) per user   ARGV: now, last seen ttl, usernames...
+    // Returns {seq or 0, users that actually went offline}
+    private static final DefaultRedisScript<List> EXPIRE_USERS_SCRIPT = new DefaultRedisScript<>(
+            "local left = {} "
+                    + "for i = 3, #ARGV do "
+                    + "  local k = 3 + (i - 3) * 2 "
+                    + "  redis.call('DEL', KEYS[k]) "
+                    + "  if redis.call('SREM', KEYS[1], ARGV[i]) == 1 then "
+                    + "    redis.call('SET', KEYS[k + 1], ARGV[1], 'EX', ARGV[2]) "
+                    + "    left[#left + 1] = ARGV[i] "
+                    + "  end "
+                    + "end "
+                    + "local seq = 0 "
+                    + "if #left > 0 then seq = redis.call('INCR', KEYS[2]) end "
+                    + "return {seq, left}",
+            List.class);
+
+    // KEYS: online, seq, then one room per entry
+    // ARGV: large-room threshold, user count, usernames..., then per room its member count and members...
+    // Only users who are online (now) go back into a room
+    // Returns {seq or 0, users that were not online, {number added, room size, members of a small room} per room}
+    private static final DefaultRedisScript<List> RESTORE_ONLINE_SCRIPT = new DefaultRedisScript<>(
+            "local limit, n = tonumber(ARGV[1]), tonumber(ARGV[2]) "
+                    + "local joined = {} "
+                    + "for i = 3, 2 + n do "
+                    + "  if redis.call('SADD', KEYS[1], ARGV[i]) == 1 then joined[#joined + 1] = ARGV[i] end "
+                    + "end "
+                    + "local seq = 0 "
+                    + "if #joined > 0 then seq = redis.call('INCR', KEYS[2]) end "
+                    + "local rooms = {} "
+                    + "local a = 3 + n "
+                    + "for k = 3, #KEYS do "
+                    + "  local room, m = KEYS[k], tonumber(ARGV[a]) "
+                    + "  local changed = 0 "
+                    + "  for j = a + 1, a + m do "
+                    + "    if redis.call('SISMEMBER', KEYS[1], ARGV[j]) == 1 then "
+                    + "      changed = changed + redis.call('SADD', room, ARGV[j]) "
+                    + "    end "
+                    + "  end "
+                    + "  a = a + m + 1 "
+                    + ROOM_STATE_REPLY
+                    + "  rooms[#rooms + 1] = {changed, count, members} "
+                    + "end "
+                    + "return {seq, joined, rooms}",
+            List.class);
+
+    // KEYS: room, then room last seen per user   ARGV: now, large-room threshold, usernames...
+    // Returns {number removed, room size, members of a small room}
+    private static final DefaultRedisScript<List> EXPIRE_ROOM_USERS_SCRIPT = new DefaultRedisScript<>(
+            "local changed = 0 "
+                    + "for i = 3, #ARGV do "
+                    + "  if redis.call('SREM', KEYS[1], ARGV[i]) == 1 then "
+                    + "    changed = changed + 1 "
+                    + "    redis.call('SET', KEYS[i - 1], ARGV[1]) "
+                    + "  end "
+                    + "end "
+                    + "local room, limit = KEYS[1], tonumber(ARGV[2]) "
+                    + ROOM_STATE_REPLY
+                    + "return {changed, count, members}",
+            List.class);
+
+    @Value("${app.presence.large-room.threshold:200}")
+    private long largeRoomThreshold;
 
-    private static final String ONLINE_USERS_KEY = "online_users";
-    private static final String USER_SESSIONS_KEY = "user_sessions:";
-    private static final String LAST_SEEN_KEY = "last_seen:";
+    @Value("${app.presence.room-broadcast-interval-ms:1000}")
+    private long roomBroadcastIntervalMs;
 
-    public void userConnected(String username, String sessionId) {
-        redisTemplate.opsForSet().add(ONLINE_USERS_KEY, username);
+    // roomId -> rate limiter state for /topic/room.<id>.users
+    private final ConcurrentHashMap<String, RoomBroadcast> roomBroadcasts = new ConcurrentHashMap<>();
 
-        String userSessionsKey = USER_SESSIONS_KEY + username;
-        redisTemplate.opsForSet().add(userSessionsKey, sessionId);
-        redisTemplate.expire(userSessionsKey, 1, TimeUnit.DAYS);
+    private final LongAdder connectCount = new LongAdder();
+    private final LongAdder connectNanos = new LongAdder();
+    private final AtomicLong connectMaxNanos = new AtomicLong();
 
-        updateLastSeen(username);
+    @PostConstruct
+    void listenForHeartbeats() {
+        heartbeatService.setFlushListener(this::restoreOnline);
+    }
+
+    /**
+     * Registers the session, marks the user online and adds them to the room, in one round-trip.
+     */
+    public void userConnected(String username, String sessionId, String roomId) {
+        // Counts as a heartbeat, so users that never send one still expire
+        heartbeatService.recordUserActivity(username);
+        heartbeatService.recordRoomActivity(roomId, username);
+
+        long start = System.nanoTime();
+        List<Object> result = stringRedisTemplate.execute(CONNECT_SCRIPT,
+                List.of(ONLINE_USERS_KEY, USER_SESSIONS_KEY + username, PRESENCE_SEQ_KEY, ROOM_USERS_KEY + roomId),
+                username, sessionId, String.valueOf(SESSION_TTL_SECONDS), String.valueOf(largeRoomThreshold));
+        recordConnectLatency(System.nanoTime() - start);
+
+        long seq = ((Number) result.get(0)).longValue();
+        if (seq > 0) {
+            broadcastPresenceDelta(seq, List.of(username), List.of());
+            broadcastPresenceUpdate(username, true, null);
+        }
+        if (((Number) result.get(1)).longValue() > 0) {
+            roomUsersChanged(roomId, ((Number) result.get(2)).longValue(), result.get(3));
+        }
+    }
+
+    /**
+     * Ends the session and leaves the room; the user goes offline once their last session is gone.
+     */
+    public void userDisconnected(String username, String sessionId, String roomId) {
+        String now = LocalDateTime.now().toString();
+        List<Object> result = stringRedisTemplate.execute(DISCONNECT_SCRIPT,
+                List.of(ONLINE_USERS_KEY, USER_SESSIONS_KEY + username, PRESENCE_SEQ_KEY,
+                        LAST_SEEN_KEY + username, ROOM_USERS_KEY + roomId, roomLastSeenKey(roomId, username)),
+                username, sessionId, now, String.valueOf(LAST_SEEN_TTL_SECONDS), String.valueOf(largeRoomThreshold));
+        // Nor a room heartbeat bring them back into the room they left
+        heartbeatService.forgetRoomMember(roomId, username);
 
-        broadcastPresenceUpdate(username, true);
+        long seq = ((Number) result.get(0)).longValue();
+        if (seq > 0) {
+            // A heartbeat still waiting to be flushed must not bring them back
+            heartbeatService.forgetUser(username);
+            broadcastPresenceDelta(seq, List.of(), List.of(username));
+            broadcastPresenceUpdate(username, false, LocalDateTime.parse(now));
+        }
+        if (((Number) result.get(1)).longValue() > 0) {
+            roomUsersChanged(roomId, ((Number) result.get(2)).longValue(), result.get(3));
+        }
     }
 
-    public void userDisconnected(String username, String sessionId) {
-        String userSessionsKey = USER_SESSIONS_KEY + username;
-        redisTemplate.opsForSet().remove(userSessionsKey, sessionId);
+    /**
+     * Takes users whose heartbeats stopped offline regardless of their sessions, and announces
+     * all of them in one delta.
+     */
+    @SuppressWarnings("unchecked")
+    public void expireUsers(List<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(2 + usernames.size() * 2);
+        keys.add(ONLINE_USERS_KEY);
+        keys.add(PRESENCE_SEQ_KEY);
+        Object[] args = new Object[2 + usernames.size()];
+        String now = LocalDateTime.now().toString();
+        args[0] = now;
+        args[1] = String.valueOf(LAST_SEEN_TTL_SECONDS);
+        for (int i = 0; i < usernames.size(); i++) {
+            keys.add(USER_SESSIONS_KEY + usernames.get(i));
+            keys.add(LAST_SEEN_KEY + usernames.get(i));
+            args[2 + i] = usernames.get(i);
+        }
 
-        Long remainingSessions = redisTemplate.opsForSet().size(userSessionsKey);
-        if (remainingSessions == null || remainingSessions == 0) {
-            redisTemplate.opsForSet().remove(ONLINE_USERS_KEY, username);
-            updateLastSeen(username);
-            broadcastPresenceUpdate(username, false);
+        List<Object> result = stringRedisTemplate.execute(EXPIRE_USERS_SCRIPT, keys, args);
+        long seq = ((Number) result.get(0)).longValue();
+        List<String> left = (List<String>) result.get(1);
+        if (seq == 0 || left.isEmpty()) {
+            return;
+        }
+        broadcastPresenceDelta(seq, List.of(), left);
+        LocalDateTime lastSeen = LocalDateTime.parse(now);
+        left.forEach(username -> broadcastPresenceUpdate(username, false, lastSeen));
+    }
+
+    /**
+     * Puts users with fresh heartbeats back into the online set, and online users with fresh room
+     * heartbeats back into those rooms, in one round-trip. Users that were missing are announced in
+     * one delta, rooms that changed get the usual room update. For users already present it is an
+     * idempotent SADD.
+     */
+    @SuppressWarnings("unchecked")
+    void restoreOnline(Collection<String> usernames, Map<String, List<String>> roomMembers) {
+        if (usernames.isEmpty() && roomMembers.isEmpty()) {
+            return;
+        }
+        List<String> roomIds = new ArrayList<>(roomMembers.keySet());
+        List<String> keys = new ArrayList<>(2 + roomIds.size());
+        keys.add(ONLINE_USERS_KEY);
+        keys.add(PRESENCE_SEQ_KEY);
+        List<Object> args = new ArrayList<>();
+        args.add(String.valueOf(largeRoomThreshold));
+        args.add(String.valueOf(usernames.size()));
+        args.addAll(usernames);
+        for (String roomId : roomIds) {
+            List<String> members = roomMembers.get(roomId);
+            keys.add(ROOM_USERS_KEY + roomId);
+            args.add(String.valueOf(members.size()));
+            args.addAll(members);
+        }
+
+        List<Object> result = stringRedisTemplate.execute(RESTORE_ONLINE_SCRIPT, keys, args.toArray());
+        long seq = ((Number) result.get(0)).longValue();
+        List<String> joined = (List<String>) result.get(1);
+        if (seq > 0 && !joined.isEmpty()) {
+            logger.info("Heartbeats brought {} expired users back online", joined.size());
+            broadcastPresenceDelta(seq, joined, List.of());
+            joined.forEach(username -> broadcastPresenceUpdate(username, true, null));
+        }
+        List<List<Object>> rooms = (List<List<Object>>) result.get(2);
+        for (int i = 0; i < roomIds.size(); i++) {
+            List<Object> room = rooms.get(i);
+            if (((Number) room.get(0)).longValue() > 0) {
+                roomUsersChanged(roomIds.get(i), ((Number) room.get(1)).longValue(), room.get(2));
+            }
+        }
+    }
+
+    /**
+     * Removes users whose room heartbeats stopped; one broadcast for the whole batch.
+     */
+    public void expireRoomUsers(String roomId, Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(1 + usernames.size());
+        keys.add(ROOM_USERS_KEY + roomId);
+        Object[] args = new Object[2 + usernames.size()];
+        args[0] = LocalDateTime.now().toString();
+        args[1] = String.valueOf(largeRoomThreshold);
+        int i = 2;
+        for (String username : usernames) {
+            keys.add(roomLastSeenKey(roomId, username));
+            args[i++] = username;
+        }
+
+        List<Object> result = stringRedisTemplate.execute(EXPIRE_ROOM_USERS_SCRIPT, keys, args);
+        if (((Number) result.get(0)).longValue() > 0) {
+            roomUsersChanged(roomId, ((Number) result.get(1)).longValue(), result.get(2));
         }
     }
 
     public boolean isUserOnline(String username) {
-        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(ONLINE_USERS_KEY, username));
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(ONLINE_USERS_KEY, username));
     }
 
     public Set<String> getOnlineUsers() {
-        Set<Object> onlineUsers = redisTemplate.opsForSet().members(ONLINE_USERS_KEY);
-        return onlineUsers != null
-                ? onlineUsers.stream().map(Object::toString).collect(java.util.stream.Collectors.toSet())
-                : new HashSet<>();
+        Set<String> onlineUsers = stringRedisTemplate.opsForSet().members(ONLINE_USERS_KEY);
+        return onlineUsers != null ? onlineUsers : new HashSet<>();
+    }
+
+    /**
+     * Online users together with the sequence number they are current as of. The sequence is read
+     * before the members, so any change missing from the set has a higher sequence and will still
+     * arrive as a delta.
+     */
+    public PresenceSnapshot getSnapshot() {
+        String seq = stringRedisTemplate.opsForValue().get(PRESENCE_SEQ_KEY);
+        return new PresenceSnapshot(seq != null ? Long.parseLong(seq) : 0, getOnlineUsers());
     }
 
     public LocalDateTime getLastSeen(String username) {
-        Object lastSeen = redisTemplate.opsForValue().get(LAST_SEEN_KEY + username);
-        if (lastSeen != null) {
-            return LocalDateTime.parse(lastSeen.toString());
+        return parseTimestamp(stringRedisTemplate.opsForValue().get(LAST_SEEN_KEY + username));
+    }
+
+    public Set<String> getRoomOnlineUsers(String roomId) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(ROOM_USERS_KEY + roomId);
+        return members != null ? members : new HashSet<>();
+    }
+
+    public boolean isUserOnlineInRoom(String roomId, String username) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(ROOM_USERS_KEY + roomId, username));
+    }
+
+    public long getRoomUserCount(String roomId) {
+        Long size = stringRedisTemplate.opsForSet().size(ROOM_USERS_KEY + roomId);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * One page of a room's online members. Start with cursor "0"; a returned nextCursor of "0"
+     * means the scan is complete. Pages may overlap slightly if the set changes mid-scan.
+     * <p>
+     * A single plain SSCAN. {@code opsForSet().scan} is not used because its cursor always starts at 0
+     * and fetches further pages itself, so it cannot resume from the cursor a client hands back.
+     */
+    public RoomMembersPage getRoomMembersPage(String roomId, String cursor, int count) {
+        List<?> reply = stringRedisTemplate.execute((RedisCallback<List<?>>) connection -> (List<?>) connection.execute(
+                "SSCAN", bytes(ROOM_USERS_KEY + roomId), bytes(cursor), bytes("COUNT"), bytes(String.valueOf(count))));
+        List<String> members = new ArrayList<>();
+        for (Object member : (List<?>) reply.get(1)) {
+            members.add(new String((byte[]) member, StandardCharsets.UTF_8));
         }
-        return null;
+        return new RoomMembersPage(roomId, members, new String((byte[]) reply.get(0), StandardCharsets.UTF_8),
+                getRoomUserCount(roomId));
     }
 
-    private void updateLastSeen(String username) {
-        redisTemplate.opsForValue().set(
-                LAST_SEEN_KEY + username,
-                LocalDateTime.now().toString(),
-                30, TimeUnit.DAYS);
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 
-    private void broadcastPresenceUpdate(String username, boolean isOnline) {
-        PresenceUpdate presenceUpdate = new PresenceUpdate(username, isOnline,
-                isOnline ? null : getLastSeen(username));
+    public LocalDateTime getLastSeenInRoom(String roomId, String username) {
+        return parseTimestamp(stringRedisTemplate.opsForValue().get(roomLastSeenKey(roomId, username)));
+    }
+
+    /**
+     * Connect round-trip latency as seen by this node, for comparing against the old multi-call path.
+     */
+    public Map<String, Object> getStats() {
+        long count = connectCount.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("connects", count);
+        stats.put("connectAvgMicros", count > 0 ? connectNanos.sum() / count / 1000 : 0);
+        stats.put("connectMaxMicros", connectMaxNanos.get() / 1000);
+        return stats;
+    }
+
+    private void recordConnectLatency(long nanos) {
+        connectCount.increment();
+        connectNanos.add(nanos);
+        connectMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static String roomLastSeenKey(String roomId, String username) {
+        return ROOM_LAST_SEEN_KEY + roomId + ":" + username;
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (Exception e) {
+            logger.debug("Ignoring unparseable timestamp {}", value);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> toSet(Object members) {
+        return members instanceof List ? new HashSet<>((List<String>) members) : new HashSet<>();
+    }
+
+    /**
+     * Leading-edge rate limit: the first change in a quiet room is sent at once, later ones within
+     * the interval only replace the pending update, which {@link #flushRoomBroadcasts} sends.
+     */
+    private void roomUsersChanged(String roomId, long count, Object members) {
+        boolean large = count > largeRoomThreshold;
+        RoomUsersUpdate update = new RoomUsersUpdate(roomId, large ? null : toSet(members), count,
+                large, LocalDateTime.now());
+        long now = System.currentTimeMillis();
+        RoomBroadcast state = roomBroadcasts.computeIfAbsent(roomId, id -> new RoomBroadcast());
+        synchronized (state) {
+            if (now - state.lastSentAt >= roomBroadcastIntervalMs) {
+                state.lastSentAt = now;
+                state.pending = null;
+            } else {
+                state.pending = update;
+                return;
+            }
+        }
+        broadcastRoomUsers(update);
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.room-broadcast-interval-ms:1000}")
+    public void flushRoomBroadcasts() {
+        long now = System.currentTimeMillis();
+        roomBroadcasts.forEach((roomId, state) -> {
+            RoomUsersUpdate update;
+            synchronized (state) {
+                if (state.pending == null) {
+                    if (now - state.lastSentAt >= roomBroadcastIntervalMs) {
+                        // quiet for a full interval, forget the room
+                        roomBroadcasts.remove(roomId, state);
+                    }
+                    return;
+                }
+                if (now - state.lastSentAt < roomBroadcastIntervalMs) {
+                    return;
+                }
+                update = state.pending;
+                state.pending = null;
+                state.lastSentAt = now;
+            }
+            broadcastRoomUsers(update);
+        });
+    }
+
+    /** Clients apply deltas in seq order and fetch a snapshot when they see a gap. */
+    private void broadcastPresenceDelta(long seq, List<String> joined, List<String> left) {
+        clusterBroadcaster.convertAndSend(ONLINE_USERS_TOPIC, new PresenceDelta(seq, joined, left));
+    }
+
+    private void broadcastPresenceUpdate(String username, boolean isOnline, LocalDateTime lastSeen) {
+        clusterBroadcaster.convertAndSend("/topic/presence", new PresenceUpdate(username, isOnline, lastSeen));
+    }
+
+    private void broadcastRoomUsers(RoomUsersUpdate update) {
+        clusterBroadcaster.convertAndSend("/topic/room." + update.getRoomId() + ".users", update);
+    }
 
-        messagingTemplate.convertAndSend("/topic/presence", presenceUpdate);
+    private static class RoomBroadcast {
+        private long lastSentAt;
+        private RoomUsersUpdate pending;
     }
 
     public static class PresenceUpdate {
@@ -101,4 +516,80 @@ public class PresenceService {
         public LocalDateTime getTimestamp() { return timestamp; }
         public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     }
-}
\ No newline at end of file
+
+    public static class PresenceDelta {
+        private long seq;
+        private List<String> joined;
+        private List<String> left;
+
+        public PresenceDelta(long seq, List<String> joined, List<String> left) {
+            this.seq = seq;
+            this.joined = joined;
+            this.left = left;
+        }
+
+        public long getSeq() { return seq; }
+        public List<String> getJoined() { return joined; }
+        public List<String> getLeft() { return left; }
+    }
+
+    public static class PresenceSnapshot {
+        private long seq;
+        private Set<String> users;
+
+        public PresenceSnapshot(long seq, Set<String> users) {
+            this.seq = seq;
+            this.users = users;
+        }
+
+        public long getSeq() { return seq; }
+        public Set<String> getUsers() { return users; }
+    }
+
+    /** onlineUsers is null for large rooms; onlineCount is always exact. */
+    public static class RoomUsersUpdate {
+        private String roomId;
+        private Set<String> onlineUsers;
+        private long onlineCount;
+        private boolean largeRoom;
+        private LocalDateTime timestamp;
+
+        public RoomUsersUpdate(String roomId, Set<String> onlineUsers, long onlineCount, boolean largeRoom,
+                               LocalDateTime timestamp) {
+            this.roomId = roomId;
+            this.onlineUsers = onlineUsers;
+            this.onlineCount = onlineCount;
+            this.largeRoom = largeRoom;
+            this.timestamp = timestamp;
+        }
+
+        public String getRoomId() { return roomId; }
+        public void setRoomId(String roomId) { this.roomId = roomId; }
+        public Set<String> getOnlineUsers() { return onlineUsers; }
+        public void setOnlineUsers(Set<String> onlineUsers) { this.onlineUsers = onlineUsers; }
+        public long getOnlineCount() { return onlineCount; }
+        public boolean isLargeRoom() { return largeRoom; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    }
+
+    public static class RoomMembersPage {
+        private String roomId;
+        private List<String> members;
+        private String nextCursor;
+        private long onlineCount;
+
+        public RoomMembersPage(String roomId, List<String> members, String nextCursor, long onlineCount) {
+            this.roomId = roomId;
+            this.members = members;
+            this.nextCursor = nextCursor;
+            this.onlineCount = onlineCount;
+        }
+
+        public String getRoomId() { return roomId; }
+        public List<String> getMembers() { return members; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean isHasMore() { return !"0".equals(nextCursor); }
+        public long getOnlineCount() { return onlineCount; }
+    }
+}
@@ -0,0 +1,182 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers read receipts per room and flushes them every
+ * {@code app.read-receipts.flush-interval-ms}: watermarks go to the database in one JDBC batch
+ * and each room gets a single frame listing every reader's highest-read messageId.
+ * Only the highest receipt per (room, user) inside a window is kept.
+ */
+@Service
+public class ReadReceiptAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(ReadReceiptAggregator.class);
+
+    // Same as RoomMemberRepository.advanceReadWatermark: never moves backwards, clears the counter at the head
+    private static final String ADVANCE_WATERMARK_SQL =
+            "UPDATE room_members rm SET last_read_message_id = ?, last_read_at = ?, " +
+            "last_read_seq = CASE WHEN ? >= cr.last_message_id THEN cr.message_count ELSE rm.last_read_seq END " +
+            "FROM chat_rooms cr, users u " +
+            "WHERE rm.room_id = cr.id AND rm.user_id = u.id AND cr.room_id = ? AND u.username = ? " +
+            "AND (rm.last_read_message_id IS NULL OR rm.last_read_message_id < ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    // roomId -> (username -> highest messageId read); inner maps are only touched inside compute/remove
+    private final ConcurrentHashMap<String, Map<String, Long>> pending = new ConcurrentHashMap<>();
+
+    public void record(String roomId, String username, Long messageId) {
+        pending.compute(roomId, (room, readers) -> {
+            Map<String, Long> merged = readers != null ? readers : new HashMap<>();
+            merged.merge(username, messageId, Math::max);
+            return merged;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.read-receipts.flush-interval-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, Long>> drained = new HashMap<>();
+        for (String roomId : pending.keySet()) {
+            Map<String, Long> readers = pending.remove(roomId);
+            if (readers != null) {
+                drained.put(roomId, readers);
+            }
+        }
+
+        List<ReadReceiptBatch.Receipt> receipts = new ArrayList<>();
+        List<String> rooms = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Long>> room : drained.entrySet()) {
+            for (Map.Entry<String, Long> reader : room.getValue().entrySet()) {
+                rooms.add(room.getKey());
+                receipts.add(new ReadReceiptBatch.Receipt(reader.getKey(), reader.getValue()));
+            }
+        }
+
+        boolean[] advanced;
+        try {
+            advanced = persist(rooms, receipts);
+        } catch (Exception e) {
+            logger.error("Failed to persist {} read receipts, retrying on the next flush: {}",
+                    receipts.size(), e.getMessage(), e);
+            requeue(drained);
+            return;
+        }
+
+        Map<String, List<ReadReceiptBatch.Receipt>> byRoom = new HashMap<>();
+        for (int i = 0; i < receipts.size(); i++) {
+            if (advanced[i]) {
+                byRoom.computeIfAbsent(rooms.get(i), room -> new ArrayList<>()).add(receipts.get(i));
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        byRoom.forEach((roomId, roomReceipts) -> {
+            try {
+                clusterBroadcaster.convertAndSend("/topic/read-receipt." + roomId,
+                        new ReadReceiptBatch(roomId, roomReceipts, now));
+            } catch (Exception e) {
+                logger.error("Failed to broadcast read receipts for room {}: {}", roomId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Puts drained receipts back for the next flush. Merging keeps the higher messageId, so newer
+     * receipts recorded meanwhile win, and the backlog stays at one entry per (room, user).
+     */
+    private void requeue(Map<String, Map<String, Long>> drained) {
+        drained.forEach((roomId, readers) -> pending.compute(roomId, (room, current) -> {
+            Map<String, Long> merged = current != null ? current : new HashMap<>();
+            readers.forEach((username, messageId) -> merged.merge(username, messageId, Math::max));
+            return merged;
+        }));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /** Writes all watermarks in one JDBC batch; the global room has no members, so it is never written. */
+    private boolean[] persist(List<String> rooms, List<ReadReceiptBatch.Receipt> receipts) {
+        boolean[] advanced = new boolean[receipts.size()];
+        List<Object[]> args = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Timestamp readAt = Timestamp.valueOf(LocalDateTime.now());
+
+        for (int i = 0; i < receipts.size(); i++) {
+            if ("global".equals(rooms.get(i))) {
+                advanced[i] = true;
+                continue;
+            }
+            ReadReceiptBatch.Receipt receipt = receipts.get(i);
+            args.add(new Object[] { receipt.getMessageId(), readAt, receipt.getMessageId(),
+                    rooms.get(i), receipt.getUsername(), receipt.getMessageId() });
+            positions.add(i);
+        }
+
+        if (!args.isEmpty()) {
+            int[] counts = jdbcTemplate.batchUpdate(ADVANCE_WATERMARK_SQL, args);
+            for (int j = 0; j < counts.length; j++) {
+                // Receipts that did not move a watermark (stale, or not a member) are not re-broadcast
+                advanced[positions.get(j)] = counts[j] > 0 || counts[j] == Statement.SUCCESS_NO_INFO;
+            }
+        }
+        return advanced;
+    }
+
+    public static class ReadReceiptBatch {
+        private String roomId;
+        private List<Receipt> receipts;
+        private long timestamp;
+
+        public ReadReceiptBatch(String roomId, List<Receipt> receipts, long timestamp) {
+            this.roomId = roomId;
+            this.receipts = receipts;
+            this.timestamp = timestamp;
+        }
+
+        public String getRoomId() { return roomId; }
+        public List<Receipt> getReceipts() { return receipts; }
+        public long getTimestamp() { return timestamp; }
+
+        public static class Receipt {
+            private String username;
+            @JsonSerialize(using = ToStringSerializer.class)
+            private Long messageId;
+
+            public Receipt(String username, Long messageId) {
+                this.username = username;
+                this.messageId = messageId;
+            }
+
+            public String getUsername() { return username; }
+            public Long getMessageId() { return messageId; }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.dto.CachedMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last {@link #MAX_MESSAGES} messages of each room, kept as a native Redis list (newest first).
+ * Appends are a single LPUSH + LTRIM + EXPIRE script, so concurrent writers to the same room
+ * never overwrite each other and each append costs one round-trip regardless of history size.
+ */
+@Service
+public class RecentMessageCache {
+    private static final Logger logger = LoggerFactory.getLogger(RecentMessageCache.class);
+
+    public static final int MAX_MESSAGES = 50;
+
+    private static final String RECENT_MESSAGES_KEY = "recent_messages:list:";
+    private static final long CACHE_EXPIRY_SECONDS = TimeUnit.HOURS.toSeconds(24);
+
+    // ARGV holds the new messages oldest first, so the newest one ends up at the head
+    private static final RedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('LPUSH', KEYS[1], unpack(ARGV)) "
+                    + "redis.call('LTRIM', KEYS[1], 0, " + (MAX_MESSAGES - 1) + ") "
+                    + "redis.call('EXPIRE', KEYS[1], " + CACHE_EXPIRY_SECONDS + ") "
+                    + "return 1",
+            Long.class);
+
+    // Seeds a cold room from the database; a no-op if a writer created the list in the meantime
+    private static final RedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end "
+                    + "redis.call('RPUSH', KEYS[1], unpack(ARGV)) "
+                    + "redis.call('EXPIRE', KEYS[1], " + CACHE_EXPIRY_SECONDS + ") "
+                    + "return 1",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * Append messages of one room, given oldest first.
+     */
+    public void push(String roomId, List<CachedMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(PUSH_SCRIPT, List.of(key(roomId)), messages.toArray());
+        } catch (Exception e) {
+            logger.warn("Failed to cache messages for room {}, continuing without cache", roomId, e);
+        }
+    }
+
+    /**
+     * Seed the cache for a room with messages given newest first.
+     */
+    public void fill(String roomId, List<CachedMessage> newestFirst) {
+        if (newestFirst.isEmpty()) {
+            return;
+        }
+        List<CachedMessage> messages = newestFirst.size() > MAX_MESSAGES
+                ? newestFirst.subList(0, MAX_MESSAGES)
+                : newestFirst;
+        try {
+            redisTemplate.execute(FILL_SCRIPT, List.of(key(roomId)), messages.toArray());
+        } catch (Exception e) {
+            logger.warn("Failed to cache recent messages for room {}", roomId, e);
+        }
+    }
+
+    /**
+     * Cached messages of a room, newest first, or null when the room is not cached or Redis failed.
+     */
+    public List<CachedMessage> getRecent(String roomId) {
+        try {
+            List<Object> values = redisTemplate.opsForList().range(key(roomId), 0, MAX_MESSAGES - 1);
+            if (values == null || values.isEmpty()) {
+                return null;
+            }
+            List<CachedMessage> messages = new ArrayList<>(values.size());
+            for (Object value : values) {
+                if (value instanceof CachedMessage cachedMessage) {
+                    messages.add(cachedMessage);
+                }
+            }
+            return messages;
+        } catch (Exception e) {
+            logger.warn("Error reading recent messages from cache for room: {}", roomId, e);
+            return null;
+        }
+    }
+
+    private String key(String roomId) {
+        return RECENT_MESSAGES_KEY + (roomId != null ? roomId : "global");
+    }
+}
@@ -0,0 +1,109 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.repository.RoomMemberRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-process cache of "is user X a member of room R", for STOMP SUBSCRIBE checks. Both
+ * answers are cached; joins and leaves on this node drop the entry right away
+ * (see {@link RoomMembershipCacheListener}) and {@code app.cache.membership.ttl-ms} bounds how
+ * long a change made on another node can go unnoticed.
+ */
+@Service
+public class RoomMembershipCache {
+    @Autowired
+    private RoomMemberRepository roomMemberRepository;
+
+    @Value("${app.cache.membership.max-size:50000}")
+    private int maxSize;
+
+    @Value("${app.cache.membership.ttl-ms:60000}")
+    private long ttlMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // "roomId:userId" -> membership and when it was loaded
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public boolean isMember(String roomId, Long userId) {
+        String key = key(roomId, userId);
+        long now = System.currentTimeMillis();
+        Entry cached = getCached(key);
+        if (cached != null && now - cached.loadedAt < ttlMs) {
+            hits.increment();
+            return cached.member;
+        }
+        misses.increment();
+        boolean member = roomMemberRepository.findByRoomIdAndUserId(roomId, userId).isPresent();
+        lock.lock();
+        try {
+            entries.put(key, new Entry(member, now));
+        } finally {
+            lock.unlock();
+        }
+        return member;
+    }
+
+    public void invalidate(String roomId, Long userId) {
+        lock.lock();
+        try {
+            entries.remove(key(roomId, userId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("size", entries.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMs", ttlMs);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private Entry getCached(String key) {
+        lock.lock();
+        try {
+            return entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String key(String roomId, Long userId) {
+        return roomId + ":" + userId;
+    }
+
+    private record Entry(boolean member, long loadedAt) {
+    }
+}
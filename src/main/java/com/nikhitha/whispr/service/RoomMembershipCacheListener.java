@@ -0,0 +1,23 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.entity.RoomMember;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link RoomMember} that drops the cached membership answer when a user joins
+ * or leaves a room, so a cached "not a member" never outlives a join on this node.
+ */
+@Component
+public class RoomMembershipCacheListener {
+    @Autowired
+    private RoomMembershipCache roomMembershipCache;
+
+    @PostPersist
+    @PostRemove
+    public void onMembershipChanged(RoomMember member) {
+        roomMembershipCache.invalidate(member.getChatRoom().getRoomId(), member.getUser().getId());
+    }
+}
@@ -1,69 +1,228 @@
 package com.nikhitha.whispr.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Typing indicators, kept entirely in memory. Each room holds the latest deadline per typing user;
+ * repeated keystrokes only push that deadline out. Expiry runs on a timing wheel and every tick
+ * sends at most one frame per changed room listing everyone currently typing there.
+ * Start/stop events are shared with the other nodes through {@link ClusterBroadcaster}, so every
+ * node holds the full typing state and only sends frames to its own sessions. A start is announced
+ * when the user begins typing and then at most once per {@link #ANNOUNCE_INTERVAL} while they keep
+ * typing, which is enough to keep the other nodes' deadlines from running out.
+ */
 @Service
 public class TypingService {
-    @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private static final Logger logger = LoggerFactory.getLogger(TypingService.class);
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
-    private static final String TYPING_KEY = "typing:";
-    private static final long TYPING_TIMEOUT = 3000; // 3 seconds
+    @Autowired
+    private ClusterBroadcaster clusterBroadcaster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String TYPING_EVENT = "typing";
+
+    static final long TYPING_TIMEOUT = 3000; // 3 seconds
+    static final long ANNOUNCE_INTERVAL = TYPING_TIMEOUT / 2;
+
+    @Value("${app.typing.tick-ms:250}")
+    private long tickMs;
+
+    // roomId -> typing users in that room
+    private final ConcurrentHashMap<String, RoomTyping> rooms = new ConcurrentHashMap<>();
+
+    // Timing wheel: one bucket per tick, wide enough that a full timeout fits in one rotation
+    private ConcurrentLinkedQueue<Timeout>[] wheel;
+    private volatile long processedTick;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    void initWheel() {
+        int buckets = (int) (TYPING_TIMEOUT / tickMs) + 2;
+        wheel = new ConcurrentLinkedQueue[buckets];
+        for (int i = 0; i < buckets; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        processedTick = System.currentTimeMillis() / tickMs;
+        clusterBroadcaster.registerEventHandler(TYPING_EVENT, this::applyRemoteEvent);
+    }
 
     public void startTyping(String roomId, String username) {
-        String key = TYPING_KEY + roomId;
-        redisTemplate.opsForHash().put(key, username, System.currentTimeMillis());
-        redisTemplate.expire(key, TYPING_TIMEOUT / 1000, TimeUnit.SECONDS);
-        
-        // Broadcast typing event
-        messagingTemplate.convertAndSend("/topic/typing." + roomId, 
-            new TypingEvent(username, roomId, true));
+        startTyping(roomId, username, System.currentTimeMillis());
+    }
+
+    void startTyping(String roomId, String username, long now) {
+        if (applyStart(roomId, username, now)) {
+            clusterBroadcaster.publishEvent(TYPING_EVENT, new TypingEvent(roomId, username, true));
+        }
     }
 
     public void stopTyping(String roomId, String username) {
-        String key = TYPING_KEY + roomId;
-        redisTemplate.opsForHash().delete(key, username);
-        
-        messagingTemplate.convertAndSend("/topic/typing." + roomId, 
-            new TypingEvent(username, roomId, false));
+        applyStop(roomId, username);
+        clusterBroadcaster.publishEvent(TYPING_EVENT, new TypingEvent(roomId, username, false));
+    }
+
+    private void applyRemoteEvent(String json) {
+        try {
+            TypingEvent event = objectMapper.readValue(json, TypingEvent.class);
+            if (event.typing()) {
+                applyStart(event.roomId(), event.username());
+            } else {
+                applyStop(event.roomId(), event.username());
+            }
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed typing event: {}", e.getMessage());
+        }
+    }
+
+    private void applyStart(String roomId, String username) {
+        applyStart(roomId, username, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a start and returns whether the cluster should hear about it: the typist is new, or
+     * the last start the cluster heard for them is {@link #ANNOUNCE_INTERVAL} old.
+     */
+    boolean applyStart(String roomId, String username, long now) {
+        long deadline = now + TYPING_TIMEOUT;
+        boolean[] announce = new boolean[1];
+        rooms.compute(roomId, (id, room) -> {
+            RoomTyping typing = room != null ? room : new RoomTyping();
+            boolean added = typing.users.put(username, deadline) == null;
+            if (added) {
+                // Only a new typist changes what the room sees; refreshes just move the deadline
+                typing.changed = true;
+                schedule(roomId, username, deadline, processedTick + 1);
+            }
+            Long announced = typing.announced.get(username);
+            if (added || announced == null || now - announced >= ANNOUNCE_INTERVAL) {
+                typing.announced.put(username, now);
+                announce[0] = true;
+            }
+            return typing;
+        });
+        return announce[0];
+    }
+
+    private void applyStop(String roomId, String username) {
+        RoomTyping room = rooms.get(roomId);
+        if (room != null && room.users.remove(username) != null) {
+            room.announced.remove(username);
+            room.changed = true;
+        }
+    }
+
+    public List<String> getTypingUsers(String roomId) {
+        RoomTyping room = rooms.get(roomId);
+        return room != null ? new ArrayList<>(room.users.keySet()) : List.of();
+    }
+
+    @Scheduled(fixedRateString = "${app.typing.tick-ms:250}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        advanceWheel(now);
+
+        rooms.forEach((roomId, room) -> {
+            if (!room.changed) {
+                return;
+            }
+            room.changed = false;
+            List<String> typing = new ArrayList<>(room.users.keySet());
+            messagingTemplate.convertAndSend("/topic/typing." + roomId, new RoomTypingUpdate(roomId, typing));
+            if (typing.isEmpty()) {
+                rooms.computeIfPresent(roomId, (id, current) -> current.users.isEmpty() && !current.changed ? null : current);
+            }
+        });
+    }
+
+    // Never into a tick that is already being drained: that bucket would hand the entry straight back
+    private void schedule(String roomId, String username, long deadline, long earliestTick) {
+        long tick = Math.max(deadline / tickMs, earliestTick);
+        wheel[(int) (tick % wheel.length)].add(new Timeout(roomId, username, tick));
+    }
+
+    void advanceWheel(long now) {
+        long target = now / tickMs;
+        // After a long pause every bucket is visited once; entries keep their own tick
+        long from = Math.max(processedTick + 1, target - wheel.length + 1);
+        for (long tick = from; tick <= target; tick++) {
+            ConcurrentLinkedQueue<Timeout> bucket = wheel[(int) (tick % wheel.length)];
+            List<Timeout> notYetDue = new ArrayList<>();
+            Timeout timeout;
+            while ((timeout = bucket.poll()) != null) {
+                if (timeout.tick > target) {
+                    notYetDue.add(timeout);
+                } else {
+                    expire(timeout, now, target);
+                }
+            }
+            bucket.addAll(notYetDue);
+        }
+        processedTick = target;
+    }
+
+    private void expire(Timeout timeout, long now, long target) {
+        RoomTyping room = rooms.get(timeout.roomId);
+        if (room == null) {
+            return;
+        }
+        Long deadline = room.users.get(timeout.username);
+        if (deadline == null) {
+            return;
+        }
+        if (deadline > now) {
+            // Typed again since this timeout was scheduled; the deadline may still fall in this tick
+            schedule(timeout.roomId, timeout.username, deadline, target + 1);
+        } else if (room.users.remove(timeout.username, deadline)) {
+            room.announced.remove(timeout.username);
+            room.changed = true;
+        }
+    }
+
+    private static class RoomTyping {
+        private final Map<String, Long> users = new ConcurrentHashMap<>();
+        // username -> when a start for them was last published or received
+        private final Map<String, Long> announced = new ConcurrentHashMap<>();
+        private volatile boolean changed;
+    }
+
+    private record Timeout(String roomId, String username, long tick) {
     }
 
-    @Scheduled(fixedRate = 5000) // Run every 5 seconds to clean up stale typing indicators
-    public void checkAndCleanTypingIndicators() {
-        // Implementation to clean up typing indicators older than TYPING_TIMEOUT
-        // This ensures that if stopTyping isn't called, indicators eventually get cleaned up
-        // You can iterate through all typing keys and remove entries older than TYPING_TIMEOUT
+    record TypingEvent(String roomId, String username, boolean typing) {
     }
 
-    public static class TypingEvent {
-        private String username;
+    public static class RoomTypingUpdate {
         private String roomId;
-        private boolean typing;
+        private List<String> users;
         private long timestamp;
 
-        public TypingEvent(String username, String roomId, boolean typing) {
-            this.username = username;
+        public RoomTypingUpdate(String roomId, List<String> users) {
             this.roomId = roomId;
-            this.typing = typing;
+            this.users = users;
             this.timestamp = System.currentTimeMillis();
         }
 
-        public String getUsername() { return username; }
-        public void setUsername(String username) { this.username = username; }
         public String getRoomId() { return roomId; }
-        public void setRoomId(String roomId) { this.roomId = roomId; }
-        public boolean isTyping() { return typing; }
-        public void setTyping(boolean typing) { this.typing = typing; }
+        public List<String> getUsers() { return users; }
         public long getTimestamp() { return timestamp; }
-        public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.dto.UserIdentity;
+import com.nikhitha.whispr.entity.User;
+import com.nikhitha.whispr.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-process cache of username -> (id, username), evicting the least recently used
+ * entry once {@code app.cache.users.max-size} is reached. Usernames never change for a given
+ * id in practice, so entries are only dropped on eviction or explicit invalidation
+ * (see {@link UserIdentityCacheListener}).
+ */
+@Service
+public class UserIdentityCache {
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.cache.users.max-size:10000}")
+    private int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final LinkedHashMap<String, UserIdentity> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UserIdentity> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public Optional<UserIdentity> find(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        UserIdentity cached = getCached(username);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        return userRepository.findByUsername(username).map(this::put);
+    }
+
+    public UserIdentity get(String username) {
+        return find(username).orElseThrow(() -> new RuntimeException("User not found: " + username));
+    }
+
+    /**
+     * Resolve many usernames at once; all misses are loaded with a single query.
+     * Unknown usernames are absent from the result.
+     */
+    public Map<String, UserIdentity> getAll(Collection<String> usernames) {
+        Map<String, UserIdentity> result = new HashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (String username : usernames) {
+            UserIdentity cached = getCached(username);
+            if (cached != null) {
+                result.put(username, cached);
+            } else {
+                missing.add(username);
+            }
+        }
+        hits.add(result.size());
+        misses.add(missing.size());
+
+        if (!missing.isEmpty()) {
+            for (User user : userRepository.findByUsernameIn(missing)) {
+                result.put(user.getUsername(), put(user));
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String username) {
+        lock.lock();
+        try {
+            entries.remove(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateUserId(Long userId) {
+        lock.lock();
+        try {
+            entries.values().removeIf(identity -> identity.getId().equals(userId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        return stats;
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserIdentity getCached(String username) {
+        lock.lock();
+        try {
+            return entries.get(username);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UserIdentity put(User user) {
+        UserIdentity identity = UserIdentity.fromEntity(user);
+        lock.lock();
+        try {
+            entries.put(identity.getUsername(), identity);
+        } finally {
+            lock.unlock();
+        }
+        return identity;
+    }
+}
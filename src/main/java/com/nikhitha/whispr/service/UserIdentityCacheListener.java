@@ -0,0 +1,24 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link User} that drops cached identities when a user row changes.
+ * Evicts by id as well, so a rename does not leave the old username behind.
+ */
+@Component
+public class UserIdentityCacheListener {
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @PostUpdate
+    @PostRemove
+    public void onUserChanged(User user) {
+        userIdentityCache.invalidateUserId(user.getId());
+        userIdentityCache.invalidate(user.getUsername());
+    }
+}
@@ -0,0 +1,120 @@
+package com.nikhitha.whispr.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts virtual threads that stayed pinned to their carrier (blocking inside a synchronized
+ * block or native frame) for longer than {@code app.threads.pinned-threshold-ms}, from the JFR
+ * {@code jdk.VirtualThreadPinned} event. Pins are grouped by the innermost frame of our own code,
+ * so the worst offenders show up in {@link #getStats()}. Only runs when virtual threads are active.
+ */
+@Service
+public class VirtualThreadPinningMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.nikhitha.whispr.";
+    private static final int MAX_SITES = 100;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${app.threads.pinned-threshold-ms:20}")
+    private long thresholdMs;
+
+    private final LongAdder pinnedCount = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final LongAccumulator maxPinnedNanos = new LongAccumulator(Math::max, 0);
+    private final Map<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return;
+        }
+        try {
+            stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::record);
+            stream.startAsync();
+            logger.info("Watching for virtual threads pinned longer than {} ms", thresholdMs);
+        } catch (Exception e) {
+            logger.warn("Could not start pinned virtual thread monitoring: {}", e.getMessage());
+            stream = null;
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        long nanos = event.getDuration().toNanos();
+        pinnedCount.increment();
+        pinnedNanos.add(nanos);
+        maxPinnedNanos.accumulate(nanos);
+        String site = site(event.getStackTrace());
+        // Bounded: past MAX_SITES distinct sites, new ones are folded into "other"
+        if (!pinnedSites.containsKey(site) && pinnedSites.size() >= MAX_SITES) {
+            site = "other";
+        }
+        pinnedSites.computeIfAbsent(site, s -> new LongAdder()).increment();
+    }
+
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(APP_PACKAGE)) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        RecordedFrame top = stackTrace.getFrames().get(0);
+        return top.getMethod().getType().getName() + "." + top.getMethod().getName();
+    }
+
+    public Map<String, Object> getStats() {
+        long count = pinnedCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", stream != null);
+        stats.put("thresholdMs", thresholdMs);
+        stats.put("pinnedCount", count);
+        stats.put("pinnedTotalMs", pinnedNanos.sum() / 1_000_000.0);
+        stats.put("pinnedMaxMs", maxPinnedNanos.get() / 1_000_000.0);
+        stats.put("pinnedAvgMs", count == 0 ? 0.0 : pinnedNanos.sum() / 1_000_000.0 / count);
+        Map<String, Long> topSites = new LinkedHashMap<>();
+        pinnedSites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(10)
+                .forEach(e -> topSites.put(e.getKey(), e.getValue().sum()));
+        stats.put("topSites", topSites);
+        return stats;
+    }
+}
@@ -0,0 +1,287 @@
+package com.nikhitha.whispr.stomp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * One lane: a bounded number of pending tasks, queued per session and run one session-task at a
+ * time on the lane's own workers, so a session's frames keep their order while sessions run in
+ * parallel. A lossless lane blocks the submitter once it is full, running its congestion handler
+ * each time it has waited {@link #CONGESTION_WAIT_MS} so the owner can free room; a lossy lane drops
+ * the new task. A task that has the same session and conflation key as a pending one replaces it
+ * instead of queueing behind it; that takes no slot, so it happens even on a full lane. Each
+ * session's backlog tracks its depth, payload bytes and the age of its oldest task.
+ */
+class SessionLane {
+    private static final Logger logger = LoggerFactory.getLogger(SessionLane.class);
+
+    // Tasks one session may run before its drain is re-queued behind other sessions
+    private static final int DRAIN_BATCH = 32;
+
+    // How long a submitter waits on a full lossless lane before the congestion handler runs
+    static final long CONGESTION_WAIT_MS = 100;
+
+    private final String name;
+    private final Executor workers;
+    private final int capacity;
+    private final boolean lossless;
+    private final Semaphore permits;
+    private volatile Runnable congestionHandler;
+
+    // sessionId -> tasks not started yet; a mapping exists exactly while a drain is scheduled
+    private final ConcurrentHashMap<String, Backlog> backlogs = new ConcurrentHashMap<>();
+
+    private final LongAdder queuedBytes = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    SessionLane(String name, Executor workers, int capacity, boolean lossless) {
+        this.name = name;
+        this.workers = workers;
+        this.capacity = capacity;
+        this.lossless = lossless;
+        this.permits = new Semaphore(capacity);
+    }
+
+    void setCongestionHandler(Runnable congestionHandler) {
+        this.congestionHandler = congestionHandler;
+    }
+
+    void submit(String sessionId, String conflationKey, Runnable task, int bytes) {
+        // Superseding needs no permit: a full lane must still take the newest full-state frame
+        if (conflationKey != null && replace(sessionId, conflationKey, task, bytes)) {
+            return;
+        }
+        if (lossless) {
+            acquire();
+        } else if (!permits.tryAcquire()) {
+            dropped.increment();
+            return;
+        }
+        long now = System.nanoTime();
+        boolean[] schedule = new boolean[1];
+        // Still checked here: a frame with the same key may have been queued since the first try
+        Long[] replaced = new Long[1];
+        backlogs.compute(sessionId, (id, backlog) -> {
+            if (backlog == null) {
+                backlog = new Backlog();
+                schedule[0] = true;
+            } else if (conflationKey != null && (replaced[0] = backlog.replace(conflationKey, task, bytes)) != null) {
+                return backlog;
+            }
+            backlog.add(new Pending(conflationKey, task, bytes, now));
+            return backlog;
+        });
+        if (replaced[0] != null) {
+            conflated.increment();
+            permits.release();
+            queuedBytes.add(replaced[0]);
+        } else {
+            queuedBytes.add(bytes);
+        }
+        if (schedule[0]) {
+            workers.execute(() -> drain(sessionId));
+        }
+    }
+
+    private boolean replace(String sessionId, String conflationKey, Runnable task, int bytes) {
+        Long[] replaced = new Long[1];
+        backlogs.computeIfPresent(sessionId, (id, backlog) -> {
+            replaced[0] = backlog.replace(conflationKey, task, bytes);
+            return backlog;
+        });
+        if (replaced[0] == null) {
+            return false;
+        }
+        conflated.increment();
+        queuedBytes.add(replaced[0]);
+        return true;
+    }
+
+    private void acquire() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (permits.tryAcquire(CONGESTION_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+                Runnable handler = congestionHandler;
+                if (handler != null && isFull()) {
+                    handler.run();
+                }
+            } catch (InterruptedException ex) {
+                // lossless: keep waiting, but let the caller see the interrupt afterwards
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    boolean isFull() {
+        return permits.availablePermits() == 0;
+    }
+
+    /**
+     * Drops every task of a session that has not started yet.
+     */
+    void discard(String sessionId) {
+        int[] count = new int[1];
+        long[] bytes = new long[1];
+        backlogs.computeIfPresent(sessionId, (id, backlog) -> {
+            count[0] = backlog.pending.size();
+            bytes[0] = backlog.bytes;
+            backlog.clear();
+            // keep the mapping: the scheduled drain removes it
+            return backlog;
+        });
+        if (count[0] > 0) {
+            permits.release(count[0]);
+            queuedBytes.add(-bytes[0]);
+            discarded.add(count[0]);
+        }
+    }
+
+    private void drain(String sessionId) {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Pending[] next = new Pending[1];
+            backlogs.compute(sessionId, (id, backlog) -> {
+                if (backlog == null || (next[0] = backlog.poll()) == null) {
+                    return null;
+                }
+                return backlog;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            permits.release();
+            queuedBytes.add(-next[0].bytes);
+            try {
+                next[0].task.run();
+            } catch (Throwable ex) {
+                logger.error("Task in lane {} failed for session {}", name, sessionId, ex);
+            }
+            executed.increment();
+        }
+        // Let other sessions' drains run before this one continues
+        workers.execute(() -> drain(sessionId));
+    }
+
+    /**
+     * Current backlog of a session, or null when it has nothing queued. Fields are read without
+     * locking and may be a frame behind.
+     */
+    Backlog backlog(String sessionId) {
+        return backlogs.get(sessionId);
+    }
+
+    void forEachBacklog(BiConsumer<String, Backlog> action) {
+        backlogs.forEach(action);
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lossless", lossless);
+        stats.put("capacity", capacity);
+        stats.put("queued", capacity - permits.availablePermits());
+        stats.put("queuedBytes", queuedBytes.sum());
+        stats.put("sessions", backlogs.size());
+        stats.put("executed", executed.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("conflated", conflated.sum());
+        stats.put("discarded", discarded.sum());
+        return stats;
+    }
+
+    /**
+     * Tasks of one session, oldest first. Only modified inside the map's compute functions.
+     */
+    static final class Backlog {
+        private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        private volatile int depth;
+        private volatile long bytes;
+        private volatile long oldestNanos;
+
+        int depth() {
+            return depth;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        /**
+         * How long the oldest queued task has been waiting, 0 when nothing is queued.
+         */
+        long lagNanos(long now) {
+            return depth == 0 ? 0 : now - oldestNanos;
+        }
+
+        private void add(Pending task) {
+            pending.add(task);
+            bytes += task.bytes;
+            depth = pending.size();
+            oldestNanos = pending.peek().enqueuedNanos;
+        }
+
+        // Superseded frames give up their slot but not their place: the new one goes out where the old one was.
+        // Returns the change in queued bytes, or null when nothing was replaced
+        private Long replace(String conflationKey, Runnable task, int taskBytes) {
+            for (Pending queued : pending) {
+                if (conflationKey.equals(queued.conflationKey)) {
+                    long delta = taskBytes - queued.bytes;
+                    queued.task = task;
+                    queued.bytes = taskBytes;
+                    bytes += delta;
+                    return delta;
+                }
+            }
+            return null;
+        }
+
+        private Pending poll() {
+            Pending task = pending.poll();
+            if (task != null) {
+                bytes -= task.bytes;
+            }
+            depth = pending.size();
+            Pending head = pending.peek();
+            oldestNanos = head != null ? head.enqueuedNanos : 0;
+            return task;
+        }
+
+        private void clear() {
+            pending.clear();
+            bytes = 0;
+            depth = 0;
+            oldestNanos = 0;
+        }
+    }
+
+    private static final class Pending {
+        private final String conflationKey;
+        private final long enqueuedNanos;
+        private Runnable task;
+        private int bytes;
+
+        Pending(String conflationKey, Runnable task, int bytes, long enqueuedNanos) {
+            this.conflationKey = conflationKey;
+            this.task = task;
+            this.bytes = bytes;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.nikhitha.whispr.stomp;
+
+/**
+ * Priority lane of a STOMP frame, decided by its destination alone.
+ * <p>
+ * {@link #CHAT} carries messages, receipts, notifications and every frame without a destination
+ * (CONNECT, SUBSCRIBE, ...): it never drops and has its own workers. {@link #EPHEMERAL} carries
+ * typing, heartbeat and presence frames: it drops when full and, for frames that carry full state,
+ * keeps only the latest pending frame per session and {@link #conflationKey conflation key}.
+ */
+public enum StompLane {
+    CHAT, EPHEMERAL;
+
+    public static StompLane of(String destination) {
+        if (destination == null) {
+            return CHAT;
+        }
+        return switch (destination) {
+            case "/app/chat.typing", "/app/chat.typing.start", "/app/chat.typing.stop", "/app/heartbeat",
+                    "/topic/typing", "/topic/presence", "/topic/online.users" -> EPHEMERAL;
+            default -> destination.startsWith("/topic/typing.") || isRoomUsers(destination) ? EPHEMERAL : CHAT;
+        };
+    }
+
+    /**
+     * Frames of one session with the same key supersede each other while they wait, or null when
+     * every frame matters: per-user presence and typing updates, and the sequenced online-user
+     * deltas, where a dropped frame shows up as a gap the client resyncs on. Only a room's full
+     * typing or presence state conflates, keyed by its destination, which names the room. Inbound
+     * {@code /app/*} frames never do: their room is only in the payload, so a typing stop or
+     * heartbeat for one room would replace another room's.
+     */
+    public static String conflationKey(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        return destination.startsWith("/topic/typing.") || isRoomUsers(destination) ? destination : null;
+    }
+
+    // /topic/room.<id>.users carries the room's full presence state (members or count)
+    private static boolean isRoomUsers(String destination) {
+        return destination.startsWith("/topic/room.") && destination.endsWith(".users");
+    }
+}
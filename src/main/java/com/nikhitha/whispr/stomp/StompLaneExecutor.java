@@ -0,0 +1,218 @@
+package com.nikhitha.whispr.stomp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Executor for a client channel that routes every dispatch to its {@link StompLane}, so typing,
+ * heartbeat and presence bursts queue (and are shed) separately from chat frames instead of
+ * delaying them. Frames of one session keep their order within a lane.
+ * <p>
+ * With a {@link SlowConsumerPolicy} (outbound only), a session whose frames across both lanes
+ * would exceed the policy's depth, bytes or lag is evicted: its queued frames are discarded and the
+ * evictor disconnects it, so one stalled client cannot hold broker threads or memory. The check runs
+ * before a frame is queued, so it never waits behind the full chat lane it is meant to relieve, and
+ * {@link #sweep()} repeats it for sessions that stopped receiving new frames. If the chat lane stays
+ * full anyway, the session with the most queued chat frames is evicted to let submitters through.
+ */
+public class StompLaneExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(StompLaneExecutor.class);
+
+    private final String name;
+    private final SessionLane chat;
+    private final SessionLane ephemeral;
+    private final Executor chatWorkers;
+    private final Executor ephemeralWorkers;
+
+    private volatile SlowConsumerPolicy slowConsumerPolicy;
+    private volatile Predicate<String> evictor;
+    private final LongAdder evictions = new LongAdder();
+
+    public StompLaneExecutor(String name, Executor chatWorkers, int chatCapacity,
+                             Executor ephemeralWorkers, int ephemeralCapacity) {
+        this.name = name;
+        this.chatWorkers = chatWorkers;
+        this.ephemeralWorkers = ephemeralWorkers;
+        this.chat = new SessionLane(name + "-chat", chatWorkers, chatCapacity, true);
+        this.ephemeral = new SessionLane(name + "-ephemeral", ephemeralWorkers, ephemeralCapacity, false);
+    }
+
+    /**
+     * Enables slow-consumer eviction. The evictor disconnects a session and returns false when it
+     * was already gone.
+     */
+    public void setSlowConsumerPolicy(SlowConsumerPolicy policy, Predicate<String> evictor) {
+        this.evictor = evictor;
+        this.slowConsumerPolicy = policy;
+        chat.setCongestionHandler(this::evictLargestChatBacklog);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handling)) {
+            chat.submit("", null, task, 0);
+            return;
+        }
+        Message<?> message = handling.getMessage();
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String key = sessionId != null ? sessionId : "";
+        int bytes = message.getPayload() instanceof byte[] payload ? payload.length : 0;
+        if (sessionId != null && slowConsumerPolicy != null && checkBacklog(sessionId, 1, bytes)) {
+            // evicted: the session is being closed, its frame has nowhere to go
+            return;
+        }
+        if (StompLane.of(destination) == StompLane.EPHEMERAL) {
+            ephemeral.submit(key, StompLane.conflationKey(destination), task, bytes);
+        } else {
+            chat.submit(key, null, task, bytes);
+        }
+    }
+
+    /**
+     * Evicts every session that is past the policy already. Sessions are otherwise only checked
+     * when a frame is sent to them, so a stalled client in a quiet room would never be noticed.
+     */
+    public void sweep() {
+        if (slowConsumerPolicy == null) {
+            return;
+        }
+        Set<String> sessionIds = new HashSet<>();
+        chat.forEachBacklog((sessionId, backlog) -> sessionIds.add(sessionId));
+        ephemeral.forEachBacklog((sessionId, backlog) -> sessionIds.add(sessionId));
+        sessionIds.remove("");
+        for (String sessionId : sessionIds) {
+            checkBacklog(sessionId, 0, 0);
+        }
+    }
+
+    // Whether the session was evicted, counting a frame of extraBytes that is about to be queued
+    private boolean checkBacklog(String sessionId, int extraFrames, long extraBytes) {
+        SlowConsumerPolicy policy = slowConsumerPolicy;
+        long now = System.nanoTime();
+        SessionLane.Backlog chatBacklog = chat.backlog(sessionId);
+        SessionLane.Backlog ephemeralBacklog = ephemeral.backlog(sessionId);
+        int depth = depth(chatBacklog) + depth(ephemeralBacklog) + extraFrames;
+        long bytes = bytes(chatBacklog) + bytes(ephemeralBacklog) + extraBytes;
+        long lagMs = TimeUnit.NANOSECONDS.toMillis(Math.max(lag(chatBacklog, now), lag(ephemeralBacklog, now)));
+        if (depth <= policy.maxFrames() && bytes <= policy.maxBytes() && lagMs <= policy.maxLagMs()) {
+            return false;
+        }
+        evict(sessionId, "%d frames, %d bytes, %d ms behind".formatted(depth, bytes, lagMs));
+        return true;
+    }
+
+    // Runs on a submitter that has waited on the full chat lane; one eviction at a time, then re-check
+    private synchronized void evictLargestChatBacklog() {
+        if (!chat.isFull()) {
+            return;
+        }
+        String[] largest = new String[1];
+        int[] largestDepth = new int[1];
+        chat.forEachBacklog((sessionId, backlog) -> {
+            int depth = backlog.depth();
+            if (!sessionId.isEmpty() && depth > largestDepth[0]) {
+                largest[0] = sessionId;
+                largestDepth[0] = depth;
+            }
+        });
+        if (largest[0] != null) {
+            evict(largest[0], "largest backlog of full chat lane, " + largestDepth[0] + " frames");
+        }
+    }
+
+    private void evict(String sessionId, String reason) {
+        chat.discard(sessionId);
+        ephemeral.discard(sessionId);
+        if (evictor.test(sessionId)) {
+            evictions.increment();
+            logger.warn("Evicted slow session {} on {}: {}", sessionId, name, reason);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("chat", chat.getStats());
+        stats.put("ephemeral", ephemeral.getStats());
+        if (slowConsumerPolicy != null) {
+            stats.put("slowConsumerPolicy", slowConsumerPolicy);
+            stats.put("evictions", evictions.sum());
+        }
+        return stats;
+    }
+
+    /**
+     * Sessions with frames waiting, most lagging first: queued frames and bytes over both lanes
+     * and the age of the oldest waiting frame.
+     */
+    public List<Map<String, Object>> getSessionLag(int limit) {
+        long now = System.nanoTime();
+        Map<String, long[]> sessions = new HashMap<>();
+        BiConsumer<String, SessionLane.Backlog> collect = (sessionId, backlog) -> {
+            long[] totals = sessions.computeIfAbsent(sessionId, id -> new long[3]);
+            totals[0] += backlog.depth();
+            totals[1] += backlog.bytes();
+            totals[2] = Math.max(totals[2], backlog.lagNanos(now));
+        };
+        chat.forEachBacklog(collect);
+        ephemeral.forEachBacklog(collect);
+
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(sessions.entrySet());
+        sorted.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[2]).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            Map<String, Object> session = new LinkedHashMap<>();
+            session.put("sessionId", entry.getKey());
+            session.put("queuedFrames", entry.getValue()[0]);
+            session.put("queuedBytes", entry.getValue()[1]);
+            session.put("lagMs", TimeUnit.NANOSECONDS.toMillis(entry.getValue()[2]));
+            result.add(session);
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        if (chatWorkers instanceof ExecutorService service) {
+            service.shutdown();
+        }
+        if (ephemeralWorkers instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    private static int depth(SessionLane.Backlog backlog) {
+        return backlog != null ? backlog.depth() : 0;
+    }
+
+    private static long bytes(SessionLane.Backlog backlog) {
+        return backlog != null ? backlog.bytes() : 0;
+    }
+
+    private static long lag(SessionLane.Backlog backlog, long now) {
+        return backlog != null ? backlog.lagNanos(now) : 0;
+    }
+
+    /**
+     * Per-session outbound limits; a session past any of them is evicted.
+     */
+    public record SlowConsumerPolicy(int maxFrames, long maxBytes, long maxLagMs) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.nikhitha.whispr.stomp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open WebSocket sessions by id (the same id STOMP frames carry as their session header), so a
+ * session can be closed from outside its own handler, e.g. when it falls too far behind.
+ */
+public class WebSocketSessionRegistry implements WebSocketHandlerDecoratorFactory {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketSessionRegistry.class);
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Closes a session if it is still open here; false when it was already gone.
+     */
+    public boolean close(String sessionId, CloseStatus status) {
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            logger.debug("Failed to close session {}: {}", sessionId, e.getMessage());
+        }
+        return true;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,103 @@
+package com.nikhitha.whispr.codec;
+
+import com.nikhitha.whispr.dto.CachedMessage;
+import com.nikhitha.whispr.dto.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatEventCodecTest {
+    // Millisecond precision: the codec stores epoch millis
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_000_000);
+
+    @Test
+    void chatMessageRoundTrips() throws IOException {
+        ChatMessage message = chatMessage();
+
+        byte[] bytes = ChatEventCodec.encode(message);
+
+        assertTrue(ChatEventCodec.isBinary(bytes));
+        assertEquals(message, ChatEventCodec.decodeChatMessage(bytes));
+    }
+
+    @Test
+    void chatMessageWithNullFieldsRoundTrips() throws IOException {
+        ChatMessage message = new ChatMessage();
+        message.setSender("alice");
+
+        assertEquals(message, ChatEventCodec.decodeChatMessage(ChatEventCodec.encode(message)));
+    }
+
+    @Test
+    void cachedMessageRoundTrips() throws IOException {
+        CachedMessage message = new CachedMessage(7_391_842_157_625_344L, "Ünïcödé 👋", "READ_RECEIPT",
+                "alice", 42L, "room-1", TIMESTAMP, true, false);
+
+        assertEquals(message, ChatEventCodec.decodeCachedMessage(ChatEventCodec.encode(message)));
+    }
+
+    @Test
+    void cachedMessageTypeWithoutCodeIsWrittenByName() throws IOException {
+        CachedMessage message = new CachedMessage(1L, "hi", "SYSTEM", "alice", 42L, "room-1", TIMESTAMP, false, false);
+
+        assertEquals("SYSTEM", ChatEventCodec.decodeCachedMessage(ChatEventCodec.encode(message)).getType());
+    }
+
+    @Test
+    void unknownFieldsAreSkipped() throws IOException {
+        ChatMessage message = chatMessage();
+        byte[] encoded = ChatEventCodec.encode(message);
+        byte[] extra = {
+                (byte) (15 << 3), (byte) 0xAC, 0x02,            // field 15, varint 300
+                (byte) 0x82, 0x01, 3, 'a', 'b', 'c'             // field 16, 3 bytes
+        };
+        byte[] withUnknownFields = Arrays.copyOf(encoded, encoded.length + extra.length);
+        System.arraycopy(extra, 0, withUnknownFields, encoded.length, extra.length);
+
+        assertEquals(message, ChatEventCodec.decodeChatMessage(withUnknownFields));
+    }
+
+    @Test
+    void rejectsNewerVersionsAndOtherKinds() {
+        byte[] newer = ChatEventCodec.encode(chatMessage());
+        newer[2] = ChatEventCodec.VERSION + 1;
+        assertThrows(IOException.class, () -> ChatEventCodec.decodeChatMessage(newer));
+
+        byte[] cached = ChatEventCodec.encode(new CachedMessage());
+        assertThrows(IOException.class, () -> ChatEventCodec.decodeChatMessage(cached));
+    }
+
+    @Test
+    void rejectsTruncatedValues() {
+        byte[] encoded = ChatEventCodec.encode(chatMessage());
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 2);
+
+        assertThrows(IOException.class, () -> ChatEventCodec.decodeChatMessage(truncated));
+    }
+
+    @Test
+    void jsonIsNotBinary() {
+        assertFalse(ChatEventCodec.isBinary("{\"type\":\"CHAT\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(ChatEventCodec.isBinary(new byte[0]));
+        assertFalse(ChatEventCodec.isBinary(null));
+    }
+
+    private static ChatMessage chatMessage() {
+        ChatMessage message = new ChatMessage();
+        message.setType(ChatMessage.MessageType.CHAT);
+        message.setContent("Are we still on for the design review at three?");
+        message.setSender("alice");
+        message.setRoomId("team-platform");
+        message.setTimestamp(TIMESTAMP);
+        message.setMessageId(7_391_842_157_625_344L);
+        return message;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nikhitha.whispr.config;
+
+import com.nikhitha.whispr.id.SnowflakeIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class IdGeneratorConfigTest {
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(IdGeneratorConfig.class);
+
+    @Test
+    void singleInstanceRunsAsNodeZero() {
+        contextRunner.run(context -> assertEquals(0, context.getBean(SnowflakeIdGenerator.class).getNodeId()));
+    }
+
+    @Test
+    void fanOutUsesTheConfiguredNodeId() {
+        contextRunner.withPropertyValues("app.cluster.fanout.enabled=true", "app.id.node-id=42")
+                .run(context -> assertEquals(42, context.getBean(SnowflakeIdGenerator.class).getNodeId()));
+    }
+
+    @Test
+    void fanOutWithoutNodeIdFailsStartup() {
+        contextRunner.withPropertyValues("app.cluster.fanout.enabled=true", "app.id.node-id=").run(context -> {
+            assertNotNull(context.getStartupFailure());
+            assertInstanceOf(IllegalStateException.class, rootCause(context.getStartupFailure()));
+        });
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        while (failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,50 @@
+package com.nikhitha.whispr.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCursorTest {
+
+    @Test
+    void roundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_456_789);
+        MessageCursor cursor = MessageCursor.decode(new MessageCursor(createdAt, 7_391_842_157_625_344L).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertEquals(7_391_842_157_625_344L, cursor.getId());
+    }
+
+    @Test
+    void roundTripsWholeMinutes() {
+        // LocalDateTime.toString drops zero seconds, e.g. 2026-10-17T12:30
+        LocalDateTime createdAt = LocalDateTime.of(2026, 10, 17, 12, 30);
+
+        assertEquals(createdAt, MessageCursor.decode(new MessageCursor(createdAt, 1L).encode()).getCreatedAt());
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = new MessageCursor(LocalDateTime.of(2026, 10, 17, 12, 30, 15), Long.MAX_VALUE).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> MessageCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> MessageCursor.decode(token("2026-10-17T12:30:15")));
+        assertThrows(IllegalArgumentException.class, () -> MessageCursor.decode(token("yesterday_5")));
+        assertThrows(IllegalArgumentException.class, () -> MessageCursor.decode(token("2026-10-17T12:30:15_x")));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,82 @@
+package com.nikhitha.whispr.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void idsIncreaseMonotonically() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long previous = generator.nextId();
+        // More than one millisecond's worth of sequence numbers, so overflow is exercised too
+        for (int i = 0; i < 100_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous, "id " + next + " after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void idsAreUniqueAndOrderedPerThreadUnderConcurrency() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        int threads = 8;
+        int idsPerThread = 50_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    boolean ordered = true;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        long id = generator.nextId();
+                        ordered &= id > previous;
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return ordered;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    void idEncodesNodeAndTimestamp() {
+        long before = System.currentTimeMillis();
+        long id = new SnowflakeIdGenerator(42).nextId();
+        long after = System.currentTimeMillis();
+
+        assertEquals(42, (id >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID);
+        long timestamp = SnowflakeIdGenerator.timestampOf(id);
+        assertTrue(timestamp >= before && timestamp <= after + 1, "timestamp " + timestamp);
+    }
+
+    @Test
+    void rejectsNodeIdsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -0,0 +1,146 @@
+package com.nikhitha.whispr.repository;
+
+import com.nikhitha.whispr.config.IdGeneratorConfig;
+import com.nikhitha.whispr.dto.MessageDTO;
+import com.nikhitha.whispr.entity.Message;
+import com.nikhitha.whispr.entity.User;
+import com.nikhitha.whispr.service.RoomMembershipCache;
+import com.nikhitha.whispr.service.UserIdentityCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the statements behind the history reads and message inserts with Hibernate statistics:
+ * a page of DTOs must come back in one select (no per-row sender loads) and a batch of new
+ * messages must be inserted through one prepared, batched statement.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(IdGeneratorConfig.class)
+class MessageRepositoryTest {
+    private static final String ROOM = "room-1";
+    private static final int PAGE_SIZE = 20;
+
+    // Entity listeners on User and RoomMember are Spring beans that need these caches
+    @MockitoBean
+    private UserIdentityCache userIdentityCache;
+
+    @MockitoBean
+    private RoomMembershipCache roomMembershipCache;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private Statistics statistics;
+    private final List<User> senders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < 5; i++) {
+            senders.add(entityManager.persist(user("sender" + i)));
+        }
+    }
+
+    @Test
+    void latestPageIsOneStatementWithSenderNames() {
+        saveMessages(PAGE_SIZE + 5);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<MessageDTO> page = messageRepository.findLatestDTOsInRoom(ROOM, PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.size());
+        assertTrue(page.stream().allMatch(dto -> dto.getSenderUsername().startsWith("sender")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void olderPageIsOneStatement() {
+        saveMessages(PAGE_SIZE + 5);
+        entityManager.flush();
+        entityManager.clear();
+        MessageDTO oldestOnFirstPage = messageRepository.findLatestDTOsInRoom(ROOM, PageRequest.of(0, PAGE_SIZE))
+                .get(PAGE_SIZE - 1);
+        statistics.clear();
+
+        List<MessageDTO> older = messageRepository.findDTOsBeforeInRoom(ROOM, oldestOnFirstPage.getTimestamp(),
+                oldestOnFirstPage.getMessageId(), PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(5, older.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void offsetPageIsOneSelectPlusCount() {
+        saveMessages(PAGE_SIZE + 5);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        Page<MessageDTO> page = messageRepository.findDTOsByRoomId(ROOM, PageRequest.of(0, PAGE_SIZE));
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        assertEquals(PAGE_SIZE + 5, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void newMessagesAreInsertedInOneBatch() {
+        entityManager.flush();
+        statistics.clear();
+
+        // hibernate.jdbc.batch_size is 50: one prepared insert, executed as a single batch
+        saveMessages(50);
+        entityManager.flush();
+
+        assertEquals(50, statistics.getEntityInsertCount());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private void saveMessages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message message = new Message();
+            message.setType(Message.MessageType.CHAT);
+            message.setContent("message " + i);
+            message.setRoomId(ROOM);
+            message.setSender(senders.get(i % senders.size()));
+            messages.add(message);
+        }
+        messageRepository.saveAll(messages);
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password");
+        return user;
+    }
+}
@@ -0,0 +1,104 @@
+package com.nikhitha.whispr.security;
+
+import com.nikhitha.whispr.service.RoomMembershipCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StompAuthChannelInterceptorTest {
+    private static final StompPrincipal ALICE = new StompPrincipal(1L, "alice");
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private RoomMembershipCache roomMembershipCache;
+    private StompAuthChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        roomMembershipCache = mock(RoomMembershipCache.class);
+        interceptor = new StompAuthChannelInterceptor();
+        ReflectionTestUtils.setField(interceptor, "roomMembershipCache", roomMembershipCache);
+    }
+
+    @Test
+    void wildcardSubscriptionsAreRejected() {
+        when(roomMembershipCache.isMember(anyString(), anyLong())).thenReturn(true);
+
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/room.*"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/**"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/typing.?"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/messages/{room}"));
+        verify(roomMembershipCache, never()).isMember(anyString(), anyLong());
+    }
+
+    @Test
+    void nonMembersCannotSubscribeToRoomTopics() {
+        when(roomMembershipCache.isMember("r1", 1L)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/room.r1"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/room.r1.users"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/messages/r1"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/read-receipt.r1"));
+    }
+
+    @Test
+    void membersCanSubscribeToRoomTopics() {
+        when(roomMembershipCache.isMember("r1", 1L)).thenReturn(true);
+
+        assertDoesNotThrow(() -> subscribe("/topic/room.r1"));
+        assertDoesNotThrow(() -> subscribe("/topic/room.r1.users"));
+        assertDoesNotThrow(() -> subscribe("/topic/typing.r1"));
+    }
+
+    @Test
+    void unknownDestinationsAreDeniedByDefault() {
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/secret"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/queue/notifications-user123"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/room.r1.other"));
+        assertThrows(AccessDeniedException.class, () -> subscribe("/topic/room."));
+    }
+
+    @Test
+    void publicTopicsAndOwnQueuesAreAllowed() {
+        assertDoesNotThrow(() -> subscribe("/topic/public"));
+        assertDoesNotThrow(() -> subscribe("/topic/online.users"));
+        assertDoesNotThrow(() -> subscribe("/user/queue/notifications"));
+        assertDoesNotThrow(() -> subscribe("/topic/room.global"));
+        verify(roomMembershipCache, never()).isMember(anyString(), anyLong());
+    }
+
+    @Test
+    void roomIdIsOnlyParsedFromExactRoomTopics() {
+        assertEquals("r1", StompAuthChannelInterceptor.roomId("/topic/room.r1.users"));
+        assertEquals("r1", StompAuthChannelInterceptor.roomId("/topic/messages/r1"));
+        assertNull(StompAuthChannelInterceptor.roomId("/topic/messages/r1/extra"));
+        assertNull(StompAuthChannelInterceptor.roomId("/topic/typing.r1.users"));
+        assertNull(StompAuthChannelInterceptor.roomId("/topic/public"));
+    }
+
+    private void subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s1");
+        accessor.setUser(ALICE);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        interceptor.preSend(message, channel);
+    }
+}
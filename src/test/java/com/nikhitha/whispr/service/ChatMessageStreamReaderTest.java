@@ -0,0 +1,105 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nikhitha.whispr.dto.ChatMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChatMessageStreamReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private ChatMessageStreamReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new ChatMessageStreamReader();
+        ReflectionTestUtils.setField(reader, "objectMapper", objectMapper);
+    }
+
+    @Test
+    void readsTopLevelFieldsAndSkipsTheRest() throws IOException {
+        ChatMessage message = reader.read(bytes("{\"type\":\"CHAT\",\"extra\":{\"nested\":[1,{\"sender\":\"mallory\"}]},"
+                + "\"content\":\"hi\",\"sender\":\"alice\",\"roomId\":\"r1\","
+                + "\"timestamp\":\"2026-10-17T12:30:15.123\",\"messageId\":\"42\"}"));
+
+        assertEquals(ChatMessage.MessageType.CHAT, message.getType());
+        assertEquals("hi", message.getContent());
+        assertEquals("alice", message.getSender());
+        assertEquals("r1", message.getRoomId());
+        assertEquals(LocalDateTime.of(2026, 10, 17, 12, 30, 15, 123_000_000), message.getTimestamp());
+        assertEquals(42L, message.getMessageId());
+    }
+
+    @Test
+    void readsNumericIdsAndTimestampArrays() throws IOException {
+        ChatMessage message = reader.read(bytes("{\"messageId\":42,\"timestamp\":[2026,10,17,12,30,15,5]}"));
+
+        assertEquals(42L, message.getMessageId());
+        assertEquals(LocalDateTime.of(2026, 10, 17, 12, 30, 15, 5), message.getTimestamp());
+    }
+
+    @Test
+    void readsEmptyObject() throws IOException {
+        ChatMessage message = reader.read(bytes("{}"));
+
+        assertNull(message.getType());
+        assertNull(message.getSender());
+        assertNull(message.getMessageId());
+        assertNotNull(message.getTimestamp());
+    }
+
+    @Test
+    void explicitNullIdIsTreatedAsMissing() throws IOException {
+        assertNull(reader.read(bytes("{\"sender\":\"alice\",\"messageId\":null}")).getMessageId());
+    }
+
+    @Test
+    void rejectsNonObjects() {
+        assertThrows(IOException.class, () -> reader.read(bytes("[1,2]")));
+    }
+
+    @Test
+    void splicesIdIntoEmptyObject() {
+        assertEquals("{\"messageId\":\"5\"}", string(reader.withMessageId(bytes("{}"), 5)));
+        assertEquals("{ \"messageId\":\"5\"}", string(reader.withMessageId(bytes("{ }"), 5)));
+    }
+
+    @Test
+    void splicesIdBeforeTrailingWhitespace() throws IOException {
+        byte[] spliced = reader.withMessageId(bytes("{\"sender\":\"alice\" \n}\r\n  "), 5);
+
+        assertEquals("{\"sender\":\"alice\" \n,\"messageId\":\"5\"}", string(spliced));
+        assertEquals(5L, objectMapper.readValue(spliced, ChatMessage.class).getMessageId());
+    }
+
+    @Test
+    void splicedIdWinsOverExplicitNull() throws IOException {
+        byte[] spliced = reader.withMessageId(bytes("{\"messageId\":null,\"sender\":\"alice\"}"), 5);
+
+        assertEquals(5L, reader.read(spliced).getMessageId());
+        assertEquals(5L, objectMapper.readValue(spliced, ChatMessage.class).getMessageId());
+    }
+
+    @Test
+    void splicingRejectsNonObjects() {
+        assertThrows(IllegalArgumentException.class, () -> reader.withMessageId(bytes("[1,2]"), 5));
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] json) {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,298 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.config.IdGeneratorConfig;
+import com.nikhitha.whispr.config.RedisConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two nodes, each with its own web server, STOMP endpoint and simple broker, that share one real
+ * Redis ({@code spring.data.redis.host} and {@code .port} system properties, localhost:6379 by
+ * default) for the cluster fan-out; skipped when none is reachable. Clients connect over real
+ * WebSockets, with the username taken from the handshake URL instead of a JWT.
+ * <p>
+ * Subscriptions are registered asynchronously, so every test first pings until each subscriber
+ * receives, then waits {@link #SETTLE_MILLIS} after the measured frame to catch any duplicate.
+ */
+class ClusterFanOutTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final long SETTLE_MILLIS = 500;
+    private static final String PING = "ping";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() {
+        String host = System.getProperty("spring.data.redis.host", "localhost");
+        int port = Integer.getInteger("spring.data.redis.port", 6379);
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            Assumptions.abort("No Redis reachable: " + e.getMessage());
+        } finally {
+            connectionFactory.destroy();
+        }
+
+        nodeA = startNode(1, host, port);
+        nodeB = startNode(2, host, port);
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+    }
+
+    @Test
+    void recordConsumedOnOneNodeReachesSubscribersOnTheOther() throws Exception {
+        String destination = "/topic/room." + UUID.randomUUID();
+        Subscriber onB = subscribe(nodeB, "bob", destination);
+        awaitSubscribed(id -> broadcaster(nodeA).sendEncoded(destination, json(id)), onB);
+
+        // What KafkaConsumerService does with a JSON record it consumed
+        String id = UUID.randomUUID().toString();
+        broadcaster(nodeA).sendEncoded(destination, json(id));
+
+        assertEquals(1, onB.awaitCount(id));
+    }
+
+    @Test
+    void nodeSkipsItsOwnFrames() throws Exception {
+        String destination = "/topic/room." + UUID.randomUUID();
+        Subscriber onA = subscribe(nodeA, "alice", destination);
+        Subscriber onB = subscribe(nodeB, "bob", destination);
+        awaitSubscribed(id -> broadcaster(nodeA).sendEncoded(destination, json(id)), onA, onB);
+
+        String id = UUID.randomUUID().toString();
+        broadcaster(nodeA).sendEncoded(destination, json(id));
+
+        // Delivered locally once; the copy that comes back from Redis is dropped
+        assertEquals(1, onB.awaitCount(id));
+        assertEquals(1, onA.awaitCount(id));
+        assertEquals(1, outboundFrames(nodeA).count(id));
+    }
+
+    @Test
+    void userDestinationIsDeliveredOnlyByTheNodeHoldingTheSession() throws Exception {
+        Subscriber bobOnB = subscribe(nodeB, "bob", "/user/queue/notices");
+        Subscriber aliceOnA = subscribe(nodeA, "alice", "/user/queue/notices");
+        awaitSubscribed(id -> broadcaster(nodeA).convertAndSendToUser("bob", "/queue/notices", Map.of("id", id)), bobOnB);
+        awaitSubscribed(id -> broadcaster(nodeB).convertAndSendToUser("alice", "/queue/notices", Map.of("id", id)), aliceOnA);
+
+        String fromA = UUID.randomUUID().toString();
+        String fromB = UUID.randomUUID().toString();
+        broadcaster(nodeA).convertAndSendToUser("bob", "/queue/notices", Map.of("id", fromA));
+        broadcaster(nodeB).convertAndSendToUser("bob", "/queue/notices", Map.of("id", fromB));
+
+        assertEquals(1, bobOnB.awaitCount(fromA));
+        assertEquals(1, bobOnB.awaitCount(fromB));
+        assertEquals(1, outboundFrames(nodeB).count(fromA));
+        assertEquals(0, outboundFrames(nodeA).count(fromA));
+        assertEquals(0, outboundFrames(nodeA).count(fromB));
+        assertEquals(0, aliceOnA.count(fromA) + aliceOnA.count(fromB));
+    }
+
+    private static ConfigurableApplicationContext startNode(int nodeId, String redisHost, int redisPort) {
+        // Arguments, not default properties, so they win over application.properties
+        return new SpringApplicationBuilder(FanOutNode.class)
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0",
+                        "--app.cluster.fanout.enabled=true",
+                        "--app.id.node-id=" + nodeId,
+                        "--spring.data.redis.host=" + redisHost,
+                        "--spring.data.redis.port=" + redisPort);
+    }
+
+    private static ClusterBroadcaster broadcaster(ConfigurableApplicationContext node) {
+        return node.getBean(ClusterBroadcaster.class);
+    }
+
+    private static OutboundFrames outboundFrames(ConfigurableApplicationContext node) {
+        return node.getBean(OutboundFrames.class);
+    }
+
+    private static byte[] json(String id) {
+        return ("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Subscriber subscribe(ConfigurableApplicationContext node, String username, String destination)
+            throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port + "/ws?user=" + username,
+                new StompSessionHandlerAdapter() { }).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        Subscriber subscriber = new Subscriber();
+        session.subscribe(destination, subscriber);
+        return subscriber;
+    }
+
+    private static void awaitSubscribed(Consumer<String> ping, Subscriber... subscribers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        for (Subscriber subscriber : subscribers) {
+            while (subscriber.count(PING) == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "subscription never became active");
+                ping.accept(PING);
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static int count(Queue<String> payloads, String id) {
+        return (int) payloads.stream().filter(payload -> payload.contains("\"" + id + "\"")).count();
+    }
+
+    private static class Subscriber implements StompFrameHandler {
+        private final Queue<String> received = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return byte[].class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            received.add(new String((byte[]) payload, StandardCharsets.UTF_8));
+        }
+
+        int count(String id) {
+            return ClusterFanOutTest.count(received, id);
+        }
+
+        /**
+         * Waits for the first copy, then long enough for a duplicate to show up too.
+         */
+        int awaitCount(String id) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while (count(id) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(SETTLE_MILLIS);
+            return count(id);
+        }
+    }
+
+    /**
+     * Payloads of every MESSAGE frame a node sends to its own sessions.
+     */
+    static class OutboundFrames implements ChannelInterceptor {
+        private final Queue<String> payloads = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE
+                    && message.getPayload() instanceof byte[] payload) {
+                payloads.add(new String(payload, StandardCharsets.UTF_8));
+            }
+            return message;
+        }
+
+        int count(String id) {
+            return ClusterFanOutTest.count(payloads, id);
+        }
+    }
+
+    /**
+     * Just enough of the application for fan-out: the same broker layout as {@code WebSocketConfig},
+     * the real Redis configuration and {@link ClusterBroadcaster}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class, JacksonAutoConfiguration.class, RedisAutoConfiguration.class})
+    @Import({RedisConfig.class, IdGeneratorConfig.class, ClusterBroadcaster.class})
+    @EnableWebSocketMessageBroker
+    static class FanOutNode implements WebSocketMessageBrokerConfigurer {
+        private final OutboundFrames outboundFrames = new OutboundFrames();
+
+        @Bean
+        OutboundFrames outboundFrames() {
+            return outboundFrames;
+        }
+
+        @Override
+        public void configureMessageBroker(MessageBrokerRegistry config) {
+            config.enableSimpleBroker("/topic", "/queue");
+            config.setApplicationDestinationPrefixes("/app");
+            config.setUserDestinationPrefix("/user");
+        }
+
+        @Override
+        public void registerStompEndpoints(StompEndpointRegistry registry) {
+            registry.addEndpoint("/ws").setHandshakeHandler(new DefaultHandshakeHandler() {
+                @Override
+                protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                                  Map<String, Object> attributes) {
+                    String username = UriComponentsBuilder.fromUri(request.getURI()).build()
+                            .getQueryParams().getFirst("user");
+                    return () -> username;
+                }
+            });
+        }
+
+        @Override
+        public void configureClientOutboundChannel(ChannelRegistration registration) {
+            registration.interceptors(outboundFrames);
+        }
+    }
+}
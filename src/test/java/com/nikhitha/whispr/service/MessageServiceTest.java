@@ -0,0 +1,131 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.dto.CachedMessage;
+import com.nikhitha.whispr.dto.ChatMessage;
+import com.nikhitha.whispr.dto.UserIdentity;
+import com.nikhitha.whispr.entity.Message;
+import com.nikhitha.whispr.repository.ChatRoomRepository;
+import com.nikhitha.whispr.repository.MessageRepository;
+import com.nikhitha.whispr.repository.RoomMemberRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the service inside a bare transaction synchronization, so the test decides whether the
+ * transaction commits or rolls back.
+ */
+class MessageServiceTest {
+    private static final long GENERATED_ID = 42L;
+
+    private MessageRepository messageRepository;
+    private RecentMessageCache recentMessageCache;
+    private MessageService messageService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        recentMessageCache = mock(RecentMessageCache.class);
+        UserIdentityCache userIdentityCache = mock(UserIdentityCache.class);
+        when(userIdentityCache.getAll(any())).thenReturn(Map.of("alice", new UserIdentity(1L, "alice")));
+        when(userIdentityCache.get("alice")).thenReturn(new UserIdentity(1L, "alice"));
+        // Stands in for the id generator, which only runs inside Hibernate
+        when(messageRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            messages.stream().filter(message -> message.getId() == null).forEach(message -> message.setId(GENERATED_ID));
+            return messages;
+        });
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        messageService = new MessageService();
+        ReflectionTestUtils.setField(messageService, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(messageService, "recentMessageCache", recentMessageCache);
+        ReflectionTestUtils.setField(messageService, "userIdentityCache", userIdentityCache);
+        ReflectionTestUtils.setField(messageService, "chatRoomRepository", mock(ChatRoomRepository.class));
+        ReflectionTestUtils.setField(messageService, "roomMemberRepository", mock(RoomMemberRepository.class));
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void batchIdsAndCacheFollowTheCommit() {
+        ChatMessage assigned = chatMessage(7L);
+        ChatMessage unassigned = chatMessage(null);
+
+        List<ChatMessage> saved = messageService.saveMessages(List.of(assigned, unassigned));
+        assertEquals(List.of(assigned, unassigned), saved);
+        assertNull(unassigned.getMessageId());
+        verify(recentMessageCache, never()).push(anyString(), anyList());
+
+        commit();
+        assertEquals(GENERATED_ID, unassigned.getMessageId());
+        verify(recentMessageCache).push(eq("room"), argThat((List<CachedMessage> cached) -> cached.size() == 2));
+    }
+
+    @Test
+    void rolledBackBatchLeavesNoIdsOrCacheEntries() {
+        ChatMessage unassigned = chatMessage(null);
+
+        messageService.saveMessages(List.of(unassigned));
+        rollBack();
+
+        assertNull(unassigned.getMessageId());
+        verify(recentMessageCache, never()).push(anyString(), anyList());
+    }
+
+    @Test
+    void singleMessageIsCachedOnCommit() {
+        messageService.saveMessage(chatMessage(7L));
+        verify(recentMessageCache, never()).push(anyString(), anyList());
+
+        commit();
+        verify(recentMessageCache).push(eq("room"), argThat((List<CachedMessage> cached) -> cached.size() == 1));
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    private static void rollBack() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private static ChatMessage chatMessage(Long messageId) {
+        ChatMessage message = new ChatMessage();
+        message.setMessageId(messageId);
+        message.setType(ChatMessage.MessageType.CHAT);
+        message.setContent("hello");
+        message.setSender("alice");
+        message.setRoomId("room");
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+}
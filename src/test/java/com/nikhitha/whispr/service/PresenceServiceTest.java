@@ -0,0 +1,106 @@
+package com.nikhitha.whispr.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Heartbeat flushes against a real Redis ({@code spring.data.redis.host} and {@code .port} system
+ * properties, localhost:6379 by default); skipped when none is reachable. Uses fresh users and a
+ * fresh room, and removes them from the shared presence keys afterwards.
+ */
+class PresenceServiceTest {
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private ClusterBroadcaster clusterBroadcaster;
+    private PresenceService presenceService;
+    private String username;
+    private String roomId;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getProperty("spring.data.redis.host", "localhost"),
+                Integer.getInteger("spring.data.redis.port", 6379)));
+        connectionFactory.afterPropertiesSet();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            Assumptions.abort("No Redis reachable: " + e.getMessage());
+        }
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.afterPropertiesSet();
+
+        clusterBroadcaster = mock(ClusterBroadcaster.class);
+        presenceService = new PresenceService();
+        ReflectionTestUtils.setField(presenceService, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(presenceService, "clusterBroadcaster", clusterBroadcaster);
+        ReflectionTestUtils.setField(presenceService, "heartbeatService", mock(HeartbeatService.class));
+        ReflectionTestUtils.setField(presenceService, "largeRoomThreshold", 200L);
+        ReflectionTestUtils.setField(presenceService, "roomBroadcastIntervalMs", 1000L);
+
+        username = "presence-test-" + UUID.randomUUID();
+        roomId = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            redis.opsForSet().remove("presence:online", username);
+            redis.delete("presence:room:" + roomId);
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void reapedUserComesBackOnlineAndIntoTheRoom() {
+        presenceService.restoreOnline(Set.of(username), Map.of(roomId, List.of(username)));
+
+        assertTrue(presenceService.isUserOnline(username));
+        assertTrue(presenceService.isUserOnlineInRoom(roomId, username));
+        verify(clusterBroadcaster).convertAndSend(eq("/topic/online.users"), any(Object.class));
+        verify(clusterBroadcaster).convertAndSend(eq("/topic/room." + roomId + ".users"), any(Object.class));
+    }
+
+    @Test
+    void presentUserIsNotAnnouncedAgain() {
+        presenceService.restoreOnline(Set.of(username), Map.of(roomId, List.of(username)));
+        clearInvocations(clusterBroadcaster);
+
+        presenceService.restoreOnline(Set.of(username), Map.of(roomId, List.of(username)));
+
+        verify(clusterBroadcaster, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void roomHeartbeatAloneDoesNotBringAnOfflineUserIntoTheRoom() {
+        presenceService.restoreOnline(Set.of(), Map.of(roomId, List.of(username)));
+
+        assertFalse(presenceService.isUserOnline(username));
+        assertFalse(presenceService.isUserOnlineInRoom(roomId, username));
+        verify(clusterBroadcaster, never()).convertAndSend(anyString(), any(Object.class));
+    }
+}
@@ -0,0 +1,66 @@
+package com.nikhitha.whispr.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReceiptAggregatorTest {
+    private JdbcTemplate jdbcTemplate;
+    private ClusterBroadcaster clusterBroadcaster;
+    private ReadReceiptAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        clusterBroadcaster = mock(ClusterBroadcaster.class);
+        aggregator = new ReadReceiptAggregator();
+        ReflectionTestUtils.setField(aggregator, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(aggregator, "clusterBroadcaster", clusterBroadcaster);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedFlushKeepsReceiptsAndMergesNewerOnes() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenReturn(new int[] { 1, 1 });
+
+        aggregator.record("room", "alice", 10L);
+        aggregator.record("room", "bob", 20L);
+        aggregator.flush();
+        verify(clusterBroadcaster, never()).convertAndSend(anyString(), any());
+
+        // Recorded while the database was down: alice moves ahead, bob's older receipt loses to the requeued one
+        aggregator.record("room", "alice", 15L);
+        aggregator.record("room", "bob", 5L);
+        aggregator.flush();
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), args.capture());
+        List<Object[]> retried = args.getAllValues().get(1);
+        assertEquals(2, retried.size());
+        for (Object[] row : retried) {
+            assertEquals("alice".equals(row[4]) ? 15L : 20L, row[0]);
+        }
+        verify(clusterBroadcaster).convertAndSend(eq("/topic/read-receipt.room"), any());
+
+        aggregator.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+}
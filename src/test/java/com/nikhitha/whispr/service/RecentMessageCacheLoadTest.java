@@ -0,0 +1,163 @@
+package com.nikhitha.whispr.service;
+
+import com.nikhitha.whispr.codec.WireFormat;
+import com.nikhitha.whispr.config.RedisConfig;
+import com.nikhitha.whispr.dto.CachedMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many writers appending to one room at once against a real Redis ({@code spring.data.redis.host}
+ * and {@code .port} system properties, localhost:6379 by default); skipped when none is reachable.
+ * Each round fills the list exactly to {@link RecentMessageCache#MAX_MESSAGES}, so every message
+ * must still be there afterwards: a read-modify-write append would lose some of them.
+ */
+class RecentMessageCacheLoadTest {
+    private static final int WRITERS = 25;
+    private static final int ROUNDS = 40;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private RecentMessageCache cache;
+    private String roomId;
+
+    @BeforeEach
+    void setUp() {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("spring.data.redis.host", "localhost"),
+                Integer.getInteger("spring.data.redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(config);
+        connectionFactory.afterPropertiesSet();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            connectionFactory.destroy();
+            connectionFactory = null;
+            Assumptions.abort("No Redis reachable: " + e.getMessage());
+        }
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory, WireFormat.JSON);
+        cache = new RecentMessageCache();
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        roomId = "load-test-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (connectionFactory != null) {
+            redisTemplate.delete(key());
+            connectionFactory.destroy();
+        }
+    }
+
+    @Test
+    void concurrentWritersToOneRoomLoseNoMessages() throws Exception {
+        int perWriter = RecentMessageCache.MAX_MESSAGES / WRITERS;
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                redisTemplate.delete(key());
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> writers = new ArrayList<>();
+                for (int writer = 0; writer < WRITERS; writer++) {
+                    long firstId = (long) round * RecentMessageCache.MAX_MESSAGES + (long) writer * perWriter;
+                    writers.add(executor.submit(() -> {
+                        start.await();
+                        for (long id = firstId; id < firstId + perWriter; id++) {
+                            cache.push(roomId, List.of(message(id)));
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> writer : writers) {
+                    writer.get();
+                }
+
+                List<CachedMessage> recent = cache.getRecent(roomId);
+                Set<Long> ids = new HashSet<>();
+                recent.forEach(message -> ids.add(message.getId()));
+                assertEquals(WRITERS * perWriter, ids.size(), "round " + round);
+                assertEquals(WRITERS * perWriter, recent.size(), "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentWritersKeepEachWritersOrderAndTheCap() throws Exception {
+        int perWriter = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                long firstId = (long) writer * perWriter;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (long id = firstId; id < firstId + perWriter; id++) {
+                        cache.push(roomId, List.of(message(id)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<CachedMessage> recent = cache.getRecent(roomId);
+        assertEquals(RecentMessageCache.MAX_MESSAGES, recent.size());
+        assertEquals(RecentMessageCache.MAX_MESSAGES, redisTemplate.opsForList().size(key()));
+        // Newest first: within one writer, ids must only go down
+        long[] lastSeen = new long[WRITERS];
+        Arrays.fill(lastSeen, Long.MAX_VALUE);
+        for (CachedMessage message : recent) {
+            int writer = (int) (message.getId() / perWriter);
+            assertTrue(message.getId() < lastSeen[writer], "writer " + writer + " out of order");
+            lastSeen[writer] = message.getId();
+        }
+    }
+
+    private String key() {
+        return "recent_messages:list:" + roomId;
+    }
+
+    private CachedMessage message(long id) {
+        CachedMessage message = new CachedMessage();
+        message.setId(id);
+        message.setContent("message " + id);
+        message.setType("CHAT");
+        message.setSender("sender");
+        message.setRoomId(roomId);
+        message.setCreatedAt(LocalDateTime.now());
+        message.setIsDelivered(false);
+        message.setIsRead(false);
+        return message;
+    }
+}
@@ -0,0 +1,127 @@
+package com.nikhitha.whispr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TypingServiceTest {
+    private static final long TICK_MS = 250;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TypingService typingService;
+    private long baseTick;
+
+    @BeforeEach
+    void setUp() {
+        typingService = newNode(mock(ClusterBroadcaster.class));
+        baseTick = 1_000_000;
+        ReflectionTestUtils.setField(typingService, "processedTick", baseTick);
+    }
+
+    @Test
+    void refreshedDeadlineInsideTheDrainedTickIsRescheduledForALaterTick() {
+        long base = baseTick * TICK_MS;
+        typingService.applyStart("room", "alice", base);
+        // Refresh: the new deadline (base + 3100) lands in the same tick as the original one
+        typingService.applyStart("room", "alice", base + 100);
+
+        long now = base + 3050;
+        assertEquals(now / TICK_MS, (base + 3100) / TICK_MS);
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> typingService.advanceWheel(now));
+        assertEquals(List.of("alice"), typingService.getTypingUsers("room"));
+
+        typingService.advanceWheel(base + 3250);
+        assertEquals(List.of(), typingService.getTypingUsers("room"));
+    }
+
+    @Test
+    void typistExpiresAfterTimeout() {
+        long base = baseTick * TICK_MS;
+        typingService.applyStart("room", "bob", base);
+
+        typingService.advanceWheel(base + TypingService.TYPING_TIMEOUT - TICK_MS);
+        assertEquals(List.of("bob"), typingService.getTypingUsers("room"));
+
+        typingService.advanceWheel(base + TypingService.TYPING_TIMEOUT + TICK_MS);
+        assertEquals(List.of(), typingService.getTypingUsers("room"));
+    }
+
+    @Test
+    void nodesConvergeWithoutAnEventPerKeystroke() {
+        ClusterBroadcaster clusterA = mock(ClusterBroadcaster.class);
+        ClusterBroadcaster clusterB = mock(ClusterBroadcaster.class);
+        AtomicReference<Consumer<String>> handlerA = captureHandler(clusterA);
+        AtomicReference<Consumer<String>> handlerB = captureHandler(clusterB);
+        deliver(clusterA, handlerB);
+        deliver(clusterB, handlerA);
+        TypingService nodeA = newNode(clusterA);
+        TypingService nodeB = newNode(clusterB);
+
+        long now = System.currentTimeMillis();
+        nodeA.startTyping("room", "alice", now);
+        nodeA.startTyping("room", "alice", now + 100);
+        nodeA.startTyping("room", "alice", now + 200);
+        assertEquals(List.of("alice"), nodeB.getTypingUsers("room"));
+        verify(clusterA, times(1)).publishEvent(eq("typing"), any());
+
+        // Still typing: announced again before the other node's deadline runs out
+        nodeA.startTyping("room", "alice", now + TypingService.ANNOUNCE_INTERVAL);
+        verify(clusterA, times(2)).publishEvent(eq("typing"), any());
+
+        nodeB.startTyping("room", "bob", now);
+        assertTrue(nodeA.getTypingUsers("room").contains("bob"));
+
+        nodeA.stopTyping("room", "alice");
+        assertEquals(List.of("bob"), nodeB.getTypingUsers("room"));
+        verify(clusterA, times(3)).publishEvent(eq("typing"), any());
+
+        // A stop followed by a new start is always announced
+        nodeA.startTyping("room", "alice", now + TypingService.ANNOUNCE_INTERVAL + 10);
+        verify(clusterA, times(4)).publishEvent(eq("typing"), any());
+    }
+
+    private TypingService newNode(ClusterBroadcaster clusterBroadcaster) {
+        TypingService node = new TypingService();
+        ReflectionTestUtils.setField(node, "tickMs", TICK_MS);
+        ReflectionTestUtils.setField(node, "messagingTemplate", mock(SimpMessagingTemplate.class));
+        ReflectionTestUtils.setField(node, "clusterBroadcaster", clusterBroadcaster);
+        ReflectionTestUtils.setField(node, "objectMapper", objectMapper);
+        node.initWheel();
+        return node;
+    }
+
+    private static AtomicReference<Consumer<String>> captureHandler(ClusterBroadcaster clusterBroadcaster) {
+        AtomicReference<Consumer<String>> handler = new AtomicReference<>();
+        doAnswer(invocation -> {
+            handler.set(invocation.getArgument(1));
+            return null;
+        }).when(clusterBroadcaster).registerEventHandler(anyString(), any());
+        return handler;
+    }
+
+    // Stands in for the Redis channel: events published by one node reach the other node's handler
+    private void deliver(ClusterBroadcaster from, AtomicReference<Consumer<String>> to) {
+        doAnswer(invocation -> {
+            to.get().accept(objectMapper.writeValueAsString(invocation.getArgument(1)));
+            return null;
+        }).when(from).publishEvent(anyString(), any());
+    }
+}
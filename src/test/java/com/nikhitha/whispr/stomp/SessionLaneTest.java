@@ -0,0 +1,171 @@
+package com.nikhitha.whispr.stomp;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionLaneTest {
+    // Drains only run when the test says so
+    private final Queue<Runnable> scheduled = new ArrayDeque<>();
+
+    @Test
+    void sessionTasksRunInOrderAndNeverConcurrently() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            SessionLane lane = new SessionLane("test", workers, 10_000, true);
+            int sessions = 8;
+            int tasksPerSession = 500;
+            List<List<Integer>> executed = new ArrayList<>();
+            AtomicInteger overlaps = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(sessions * tasksPerSession);
+            for (int s = 0; s < sessions; s++) {
+                executed.add(Collections.synchronizedList(new ArrayList<>()));
+            }
+            AtomicInteger[] running = new AtomicInteger[sessions];
+            for (int s = 0; s < sessions; s++) {
+                running[s] = new AtomicInteger();
+            }
+
+            for (int i = 0; i < tasksPerSession; i++) {
+                for (int s = 0; s < sessions; s++) {
+                    int session = s;
+                    int task = i;
+                    lane.submit("session-" + s, null, () -> {
+                        if (running[session].incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        executed.get(session).add(task);
+                        running[session].decrementAndGet();
+                        done.countDown();
+                    }, 0);
+                }
+            }
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, overlaps.get());
+            for (List<Integer> tasks : executed) {
+                for (int i = 0; i < tasksPerSession; i++) {
+                    assertEquals(i, tasks.get(i));
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    void laterFrameReplacesPendingFrameWithTheSameKeyInPlace() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 10, false);
+        List<String> executed = new ArrayList<>();
+
+        lane.submit("s1", "typing", () -> executed.add("start"), 10);
+        lane.submit("s1", null, () -> executed.add("chat"), 5);
+        lane.submit("s1", "typing", () -> executed.add("stop"), 30);
+
+        SessionLane.Backlog backlog = lane.backlog("s1");
+        assertEquals(2, backlog.depth());
+        assertEquals(35, backlog.bytes());
+        runScheduled();
+
+        assertEquals(List.of("stop", "chat"), executed);
+        assertEquals(1L, lane.getStats().get("conflated"));
+        assertEquals(0L, lane.getStats().get("queuedBytes"));
+        assertNull(lane.backlog("s1"));
+    }
+
+    @Test
+    void conflationIsPerSession() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 10, false);
+        List<String> executed = new ArrayList<>();
+
+        lane.submit("s1", "typing", () -> executed.add("s1"), 0);
+        lane.submit("s2", "typing", () -> executed.add("s2"), 0);
+        runScheduled();
+
+        assertEquals(List.of("s1", "s2"), executed);
+    }
+
+    @Test
+    void lossyLaneDropsWhenFull() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 2, false);
+        List<Integer> executed = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            int task = i;
+            lane.submit("s1", null, () -> executed.add(task), 0);
+        }
+        runScheduled();
+
+        assertEquals(List.of(0, 1), executed);
+        assertEquals(1L, lane.getStats().get("dropped"));
+    }
+
+    @Test
+    void fullLossyLaneStillTakesASupersedingFrame() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 1, false);
+        List<String> executed = new ArrayList<>();
+
+        lane.submit("s1", "/topic/typing.r1", () -> executed.add("alice"), 10);
+        lane.submit("s1", "/topic/typing.r1", () -> executed.add("alice, bob"), 20);
+        lane.submit("s1", "/topic/typing.r2", () -> executed.add("carol"), 10);
+        assertEquals(20, lane.backlog("s1").bytes());
+        runScheduled();
+
+        assertEquals(List.of("alice, bob"), executed);
+        assertEquals(1L, lane.getStats().get("conflated"));
+        assertEquals(1L, lane.getStats().get("dropped"));
+    }
+
+    @Test
+    void discardDropsPendingTasksAndFreesTheirSlots() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 2, true);
+        List<String> executed = new ArrayList<>();
+
+        lane.submit("s1", null, () -> executed.add("a"), 100);
+        lane.submit("s1", null, () -> executed.add("b"), 100);
+        lane.discard("s1");
+        lane.submit("s2", null, () -> executed.add("c"), 100);
+        runScheduled();
+
+        assertEquals(List.of("c"), executed);
+        assertEquals(2L, lane.getStats().get("discarded"));
+        assertEquals(0, lane.getStats().get("queued"));
+    }
+
+    @Test
+    void losslessSubmitterWaitsAndAsksForRoomWhenFull() {
+        SessionLane lane = new SessionLane("test", scheduled::add, 1, true);
+        AtomicInteger congested = new AtomicInteger();
+        lane.setCongestionHandler(() -> {
+            congested.incrementAndGet();
+            lane.discard("stuck");
+        });
+        lane.submit("stuck", null, () -> { }, 0);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> lane.submit("s2", null, () -> { }, 0));
+        assertTrue(congested.get() >= 1);
+        assertTrue(lane.isFull());
+    }
+
+    private void runScheduled() {
+        Runnable drain;
+        while ((drain = scheduled.poll()) != null) {
+            drain.run();
+        }
+    }
+}
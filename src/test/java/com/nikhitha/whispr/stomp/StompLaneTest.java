@@ -0,0 +1,43 @@
+package com.nikhitha.whispr.stomp;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StompLaneTest {
+
+    @Test
+    void typingHeartbeatAndPresenceAreEphemeral() {
+        assertEquals(StompLane.EPHEMERAL, StompLane.of("/app/chat.typing.start"));
+        assertEquals(StompLane.EPHEMERAL, StompLane.of("/app/heartbeat"));
+        assertEquals(StompLane.EPHEMERAL, StompLane.of("/topic/typing.r1"));
+        assertEquals(StompLane.EPHEMERAL, StompLane.of("/topic/online.users"));
+        assertEquals(StompLane.EPHEMERAL, StompLane.of("/topic/room.r1.users"));
+    }
+
+    @Test
+    void messagesAndControlFramesAreChat() {
+        assertEquals(StompLane.CHAT, StompLane.of(null));
+        assertEquals(StompLane.CHAT, StompLane.of("/app/chat.send"));
+        assertEquals(StompLane.CHAT, StompLane.of("/topic/room.r1"));
+        assertEquals(StompLane.CHAT, StompLane.of("/topic/messages/r1"));
+        assertEquals(StompLane.CHAT, StompLane.of("/topic/read-receipt.r1"));
+        assertEquals(StompLane.CHAT, StompLane.of("/user/queue/notifications"));
+    }
+
+    @Test
+    void onlyFullStateFramesConflate() {
+        assertEquals("/topic/typing.r1", StompLane.conflationKey("/topic/typing.r1"));
+        assertEquals("/topic/room.r1.users", StompLane.conflationKey("/topic/room.r1.users"));
+        // Inbound frames name their room only in the payload
+        assertNull(StompLane.conflationKey("/app/chat.typing.start"));
+        assertNull(StompLane.conflationKey("/app/chat.typing.stop"));
+        assertNull(StompLane.conflationKey("/app/heartbeat"));
+        // Sequenced deltas and per-user updates must all arrive
+        assertNull(StompLane.conflationKey("/topic/online.users"));
+        assertNull(StompLane.conflationKey("/topic/presence"));
+        assertNull(StompLane.conflationKey("/topic/room.r1"));
+        assertNull(StompLane.conflationKey(null));
+    }
+}